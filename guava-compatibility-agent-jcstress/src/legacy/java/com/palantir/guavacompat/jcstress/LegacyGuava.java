@@ -0,0 +1,54 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.jcstress;
+
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.FutureFallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+/** Invokes legacy guava apis on behalf of stress tests, which are compiled against modern guava. */
+public final class LegacyGuava {
+
+    public static <I, O> ListenableFuture<O> transform(
+            ListenableFuture<I> input, Function<? super I, ? extends O> function) {
+        return Futures.transform(input, function);
+    }
+
+    public static <V> void addCallback(ListenableFuture<V> input, FutureCallback<? super V> callback) {
+        Futures.addCallback(input, callback);
+    }
+
+    /** Falls back to the given value, as the fallback type doesn't exist in modern guava. */
+    public static <V> ListenableFuture<V> withFallback(ListenableFuture<V> input, V value) {
+        return Futures.withFallback(input, new FutureFallback<V>() {
+            @Override
+            public ListenableFuture<V> create(Throwable _throwable) {
+                return Futures.immediateFuture(value);
+            }
+        });
+    }
+
+    public static ListeningExecutorService sameThreadExecutor() {
+        return MoreExecutors.sameThreadExecutor();
+    }
+
+    private LegacyGuava() {}
+}
@@ -0,0 +1,71 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.jcstress;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.SettableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.II_Result;
+
+/** Completes a future while a legacy callback is added to it. The callback must run exactly once, with the value. */
+@JCStressTest
+@Outcome(id = "1, 1", expect = ACCEPTABLE, desc = "The callback ran once with the value")
+@Outcome(id = "0, 0", expect = FORBIDDEN, desc = "The callback missed the completion")
+@Outcome(expect = FORBIDDEN, desc = "The callback ran more than once or with the wrong value")
+@State
+public class AddCallbackCompletionRace {
+
+    private final SettableFuture<Integer> input = SettableFuture.create();
+    private final AtomicInteger invocations = new AtomicInteger();
+    private volatile int value;
+
+    @Actor
+    public void complete() {
+        input.set(1);
+    }
+
+    @Actor
+    public void addCallback() {
+        LegacyGuava.addCallback(input, new FutureCallback<Integer>() {
+            @Override
+            public void onSuccess(Integer result) {
+                value = result;
+                invocations.incrementAndGet();
+            }
+
+            @Override
+            public void onFailure(Throwable _throwable) {
+                value = -1;
+                invocations.incrementAndGet();
+            }
+        });
+    }
+
+    @Arbiter
+    public void arbiter(II_Result result) {
+        result.r1 = invocations.get();
+        result.r2 = value;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.jcstress;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE_INTERESTING;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.II_Result;
+
+/**
+ * Cancels the output of a chain of legacy transforms while its input completes. Cancellation propagates to the input
+ * unless the input completed first, and the input may only be cancelled along with the output.
+ */
+@JCStressTest
+@Outcome(id = "1, 1", expect = ACCEPTABLE, desc = "Cancellation propagated to the input")
+@Outcome(id = "0, 0", expect = ACCEPTABLE, desc = "The chain completed before it was cancelled")
+@Outcome(
+        id = "0, 1",
+        expect = ACCEPTABLE_INTERESTING,
+        desc = "The input completed after the output was cancelled, but before cancellation propagated")
+@Outcome(id = "1, 0", expect = FORBIDDEN, desc = "The input was cancelled but the output was not")
+@State
+public class CancellationRace {
+
+    private static final Function<Integer, Integer> INCREMENT = value -> value + 1;
+
+    private final SettableFuture<Integer> input = SettableFuture.create();
+    private final ListenableFuture<Integer> output =
+            LegacyGuava.transform(LegacyGuava.transform(input, INCREMENT), INCREMENT);
+
+    @Actor
+    public void cancel() {
+        output.cancel(false);
+    }
+
+    @Actor
+    public void complete() {
+        input.set(0);
+    }
+
+    @Arbiter
+    public void arbiter(II_Result result) {
+        result.r1 = input.isCancelled() ? 1 : 0;
+        result.r2 = output.isCancelled() ? 1 : 0;
+    }
+}
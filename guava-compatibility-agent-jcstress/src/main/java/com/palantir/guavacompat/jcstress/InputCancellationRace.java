@@ -0,0 +1,58 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.jcstress;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.I_Result;
+
+/** Cancels a future while a chain of legacy transforms is added to it, which must be cancelled in turn. */
+@JCStressTest
+@Outcome(id = "1", expect = ACCEPTABLE, desc = "The chain was cancelled")
+@Outcome(id = "0", expect = FORBIDDEN, desc = "The chain missed the cancellation of its input")
+@State
+public class InputCancellationRace {
+
+    private static final Function<Integer, Integer> INCREMENT = value -> value + 1;
+
+    private final SettableFuture<Integer> input = SettableFuture.create();
+    private volatile ListenableFuture<Integer> output;
+
+    @Actor
+    public void cancel() {
+        input.cancel(false);
+    }
+
+    @Actor
+    public void transform() {
+        output = LegacyGuava.transform(LegacyGuava.transform(input, INCREMENT), INCREMENT);
+    }
+
+    @Arbiter
+    public void arbiter(I_Result result) {
+        result.r1 = output.isCancelled() ? 1 : 0;
+    }
+}
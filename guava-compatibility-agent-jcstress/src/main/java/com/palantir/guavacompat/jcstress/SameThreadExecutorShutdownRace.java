@@ -0,0 +1,67 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.jcstress;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.III_Result;
+
+/**
+ * Shuts down a legacy {@code sameThreadExecutor} while a task is executed on it. The first result is 1 when the task
+ * ran, 2 when the task observed the executor as terminated while running, and 3 when the task was rejected. The
+ * second is whether the executor was terminated immediately after shutdown, and the third whether it was terminated
+ * once both actors finished.
+ */
+@JCStressTest
+@Outcome(id = "1, 0, 1", expect = ACCEPTABLE, desc = "The task ran, and was running when shutdown returned")
+@Outcome(id = "1, 1, 1", expect = ACCEPTABLE, desc = "The task ran before shutdown")
+@Outcome(id = "3, 0, 1", expect = ACCEPTABLE, desc = "The task was rejected, while it was counted as running")
+@Outcome(id = "3, 1, 1", expect = ACCEPTABLE, desc = "The task was rejected")
+@Outcome(expect = FORBIDDEN, desc = "The executor terminated while the task was running, or did not terminate")
+@State
+public class SameThreadExecutorShutdownRace {
+
+    private final ListeningExecutorService executor = LegacyGuava.sameThreadExecutor();
+
+    @Actor
+    public void execute(III_Result result) {
+        try {
+            executor.execute(() -> result.r1 = executor.isTerminated() ? 2 : 1);
+        } catch (RejectedExecutionException e) {
+            result.r1 = 3;
+        }
+    }
+
+    @Actor
+    public void shutdown(III_Result result) {
+        executor.shutdown();
+        result.r2 = executor.isTerminated() ? 1 : 0;
+    }
+
+    @Arbiter
+    public void arbiter(III_Result result) {
+        result.r3 = executor.isTerminated() ? 1 : 0;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.jcstress;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.I_Result;
+
+/** Fails a future while a legacy fallback is added to it, which is adapted to {@code catchingAsync} by the shims. */
+@JCStressTest
+@Outcome(id = "1", expect = ACCEPTABLE, desc = "The fallback replaced the failure")
+@Outcome(id = "-1", expect = FORBIDDEN, desc = "The fallback missed the failure")
+@Outcome(expect = FORBIDDEN, desc = "The failure escaped the fallback")
+@State
+public class WithFallbackFailureRace {
+
+    private final SettableFuture<Integer> input = SettableFuture.create();
+    private volatile ListenableFuture<Integer> output;
+
+    @Actor
+    public void fail() {
+        input.setException(new IllegalStateException());
+    }
+
+    @Actor
+    public void withFallback() {
+        output = LegacyGuava.withFallback(input, 1);
+    }
+
+    @Arbiter
+    public void arbiter(I_Result result) {
+        result.r1 = TransformCompletionRace.valueOf(output);
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.jmh;
+
+import com.google.common.util.concurrent.FutureFallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Invokes the legacy {@code Futures.withFallback} overloads with a fallback to a constant value. The fallback type
+ * doesn't exist in modern guava, so it is held here rather than by the benchmark.
+ */
+public final class LegacyFallback<V> {
+
+    private final FutureFallback<V> fallback;
+
+    public LegacyFallback(ListenableFuture<V> value) {
+        this.fallback = new FutureFallback<V>() {
+            @Override
+            public ListenableFuture<V> create(Throwable _throwable) {
+                return value;
+            }
+        };
+    }
+
+    public ListenableFuture<V> withFallback(ListenableFuture<V> input) {
+        return Futures.withFallback(input, fallback);
+    }
+
+    public ListenableFuture<V> withFallback(ListenableFuture<V> input, Executor executor) {
+        return Futures.withFallback(input, fallback, executor);
+    }
+}
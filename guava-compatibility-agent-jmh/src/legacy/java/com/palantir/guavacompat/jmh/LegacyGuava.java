@@ -0,0 +1,76 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.jmh;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Function;
+import com.google.common.base.Objects;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.concurrent.Executor;
+
+/** Invokes legacy guava apis on behalf of benchmarks, which are compiled against modern guava. */
+public final class LegacyGuava {
+
+    public static <T> T firstNonNull(T first, T second) {
+        return Objects.firstNonNull(first, second);
+    }
+
+    public static String toStringHelper(Object self, String name, Object value, int count) {
+        return Objects.toStringHelper(self).add(name, value).add("count", count).toString();
+    }
+
+    public static <I, O> ListenableFuture<O> transform(
+            ListenableFuture<I> input, Function<? super I, ? extends O> function) {
+        return Futures.transform(input, function);
+    }
+
+    public static <I, O> ListenableFuture<O> transform(
+            ListenableFuture<I> input, AsyncFunction<? super I, ? extends O> function) {
+        return Futures.transform(input, function);
+    }
+
+    public static <I, O> ListenableFuture<O> transform(
+            ListenableFuture<I> input, AsyncFunction<? super I, ? extends O> function, Executor executor) {
+        return Futures.transform(input, function, executor);
+    }
+
+    public static <V> void addCallback(ListenableFuture<V> input, FutureCallback<? super V> callback) {
+        Futures.addCallback(input, callback);
+    }
+
+    public static ListeningExecutorService sameThreadExecutor() {
+        return MoreExecutors.sameThreadExecutor();
+    }
+
+    /** Reads the legacy constant for every character, as parsing loops do. */
+    public static int countWhitespace(CharSequence sequence) {
+        int count = 0;
+        for (int i = 0; i < sequence.length(); i++) {
+            if (CharMatcher.WHITESPACE.matches(sequence.charAt(i))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private LegacyGuava() {}
+}
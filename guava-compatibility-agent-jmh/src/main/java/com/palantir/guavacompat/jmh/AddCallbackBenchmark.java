@@ -0,0 +1,75 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.jmh;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Compares the legacy {@code Futures.addCallback} with the overload which takes an executor. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class AddCallbackBenchmark {
+
+    private final Executor executor = MoreExecutors.directExecutor();
+    private final ListenableFuture<String> input = Futures.immediateFuture("input");
+
+    @Benchmark
+    public void addCallback(Blackhole blackhole) {
+        LegacyGuava.addCallback(input, new BlackholeCallback(blackhole));
+    }
+
+    @Benchmark
+    public void modernAddCallback(Blackhole blackhole) {
+        Futures.addCallback(input, new BlackholeCallback(blackhole), executor);
+    }
+
+    private static final class BlackholeCallback implements FutureCallback<String> {
+        private final Blackhole blackhole;
+
+        BlackholeCallback(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void onSuccess(String result) {
+            blackhole.consume(result);
+        }
+
+        @Override
+        public void onFailure(Throwable throwable) {
+            blackhole.consume(throwable);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.jmh;
+
+import com.google.common.base.CharMatcher;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares a loop which reads the legacy {@code CharMatcher.WHITESPACE} constant for every character with one which
+ * invokes {@code CharMatcher.whitespace()}.
+ *
+ * <p>{@link #charMatcherInitialization} measures the startup cost of the constants, which are all initialized along
+ * with {@code CharMatcher} in each class loader which defines guava. Compare a run with the default agent options to
+ * one with {@code -PjmhAgentOptions='shims=CharMatcher.WHITESPACE'}, which defines a single constant.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class CharMatcherConstantBenchmark {
+
+    private String line = "GET /index.html HTTP/1.1\tHost: example.com\tAccept: text/html, application/json";
+
+    @Benchmark
+    public int whitespaceConstant() {
+        return LegacyGuava.countWhitespace(line);
+    }
+
+    @Benchmark
+    public int whitespaceFactory() {
+        int count = 0;
+        for (int i = 0; i < line.length(); i++) {
+            if (CharMatcher.whitespace().matches(line.charAt(i))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 20)
+    @Measurement(iterations = 200)
+    public Class<?> charMatcherInitialization(IsolatedGuava guava) throws ClassNotFoundException {
+        return Class.forName(CharMatcher.class.getName(), true, guava.loader);
+    }
+
+    /** A class loader for each invocation, which defines and initializes its own guava. */
+    @State(Scope.Thread)
+    public static class IsolatedGuava {
+
+        private URLClassLoader loader;
+
+        @Setup(Level.Invocation)
+        public void setUp() {
+            URL guava = CharMatcher.class.getProtectionDomain().getCodeSource().getLocation();
+            loader = new URLClassLoader(new URL[] {guava}, null);
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() throws IOException {
+            loader.close();
+        }
+    }
+}
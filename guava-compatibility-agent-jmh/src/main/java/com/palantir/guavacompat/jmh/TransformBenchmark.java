@@ -0,0 +1,104 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.jmh;
+
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the legacy {@code Futures.transform} overloads with {@code transform} and {@code transformAsync}. The
+ * chain benchmarks complete a pipeline of {@value #CHAIN_STAGES} direct executor transforms, run them with
+ * {@code -PjmhAgentOptions='fuseTransforms=true'} to measure fused transforms.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class TransformBenchmark {
+
+    private static final int CHAIN_STAGES = 16;
+
+    private final Executor executor = MoreExecutors.directExecutor();
+    private final ListenableFuture<String> input = Futures.immediateFuture("input");
+    private final Function<String, Integer> function = String::length;
+    private final AsyncFunction<String, Integer> asyncFunction = value -> Futures.immediateFuture(value.length());
+    private final Function<Integer, Integer> increment = value -> value + 1;
+
+    @Benchmark
+    public ListenableFuture<Integer> transformFunction() {
+        return LegacyGuava.transform(input, function);
+    }
+
+    @Benchmark
+    public ListenableFuture<Integer> modernTransformFunction() {
+        return Futures.transform(input, function, executor);
+    }
+
+    @Benchmark
+    public ListenableFuture<Integer> transformAsyncFunction() {
+        return LegacyGuava.transform(input, asyncFunction);
+    }
+
+    @Benchmark
+    public ListenableFuture<Integer> transformAsyncFunctionExecutor() {
+        return LegacyGuava.transform(input, asyncFunction, executor);
+    }
+
+    @Benchmark
+    public ListenableFuture<Integer> modernTransformAsync() {
+        return Futures.transformAsync(input, asyncFunction, executor);
+    }
+
+    @Benchmark
+    public ListenableFuture<Integer> transformChain() {
+        SettableFuture<Integer> chainInput = SettableFuture.create();
+        ListenableFuture<Integer> output = chainInput;
+        for (int i = 0; i < CHAIN_STAGES; i++) {
+            output = LegacyGuava.transform(output, increment);
+        }
+        chainInput.set(0);
+        return output;
+    }
+
+    @Benchmark
+    public ListenableFuture<Integer> modernTransformChain() {
+        SettableFuture<Integer> chainInput = SettableFuture.create();
+        ListenableFuture<Integer> output = chainInput;
+        for (int i = 0; i < CHAIN_STAGES; i++) {
+            output = Futures.transform(output, increment, executor);
+        }
+        chainInput.set(0);
+        return output;
+    }
+}
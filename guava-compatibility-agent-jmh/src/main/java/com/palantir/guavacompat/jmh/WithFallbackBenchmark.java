@@ -0,0 +1,67 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.jmh;
+
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the legacy {@code Futures.withFallback} overloads with the {@code Futures.catchingAsync} call they are
+ * replaced by. With the gc profiler, allocation per operation should be identical.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class WithFallbackBenchmark {
+
+    private final Executor executor = MoreExecutors.directExecutor();
+    private final ListenableFuture<String> failed = Futures.immediateFailedFuture(new IllegalStateException());
+    private final ListenableFuture<String> value = Futures.immediateFuture("fallback");
+    private final AsyncFunction<Throwable, String> function = _throwable -> value;
+    private final LegacyFallback<String> legacy = new LegacyFallback<>(value);
+
+    @Benchmark
+    public ListenableFuture<String> withFallback() {
+        return legacy.withFallback(failed);
+    }
+
+    @Benchmark
+    public ListenableFuture<String> withFallbackExecutor() {
+        return legacy.withFallback(failed, executor);
+    }
+
+    @Benchmark
+    public ListenableFuture<String> catchingAsync() {
+        return Futures.catchingAsync(failed, Throwable.class, function, executor);
+    }
+}
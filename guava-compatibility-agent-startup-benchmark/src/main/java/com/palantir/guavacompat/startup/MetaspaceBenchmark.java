@@ -0,0 +1,112 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.startup;
+
+import com.google.common.base.Splitter;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the metaspace used by class loaders which each define their own guava with and without the
+ * {@code injectHelpers} agent option, by launching {@link MetaspaceProbe} with each. Reports the metaspace used per
+ * loader while the loaders are reachable and the metaspace left after they are discarded, which is close to the
+ * baseline only if the loaders and everything they define, including injected helpers, were unloaded.
+ *
+ * <p>Arguments: {@code --loaders 100}
+ */
+@SuppressWarnings("BanSystemOut")
+public final class MetaspaceBenchmark {
+
+    private static final String AGENT_PROPERTY = "guava-compat.agent";
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String agent = System.getProperty(AGENT_PROPERTY);
+        if (agent == null) {
+            throw new IllegalStateException("Missing required system property: " + AGENT_PROPERTY);
+        }
+        if (args.length != 0 && (args.length != 2 || !args[0].equals("--loaders"))) {
+            throw new IllegalArgumentException("Arguments: --loaders <count>");
+        }
+        int loaderCount = args.length == 0 ? 100 : Integer.parseInt(args[1]);
+        Map<String, Long> shared = launch(Paths.get(agent), "=injectHelpers=false", loaderCount);
+        Map<String, Long> injected = launch(Paths.get(agent), "", loaderCount);
+
+        System.out.printf("%n%d class loaders, each with its own guava%n", loaderCount);
+        System.out.printf("%-40s %16s %16s%n", "", "shared helpers", "injectHelpers");
+        row("metaspace per loader (KiB)", shared, injected, metrics -> kib(metrics, MetaspaceProbe.LOADED)
+                / loaderCount);
+        row("metaspace after unloading (KiB)", shared, injected, metrics -> kib(metrics, MetaspaceProbe.UNLOADED));
+        row("classes loaded", shared, injected, metrics -> metrics.get(MetaspaceProbe.LOADED_CLASSES));
+        row("classes unloaded", shared, injected, metrics -> metrics.get(MetaspaceProbe.UNLOADED_CLASSES));
+        row("failed legacy calls", shared, injected, metrics -> metrics.get(MetaspaceProbe.FAILED_CALLS));
+    }
+
+    /** Returns the metaspace used above the baseline, in KiB. */
+    private static double kib(Map<String, Long> metrics, String key) {
+        return (metrics.get(key) - metrics.get(MetaspaceProbe.BASELINE)) / 1024.0;
+    }
+
+    private interface Metric {
+        double value(Map<String, Long> metrics);
+    }
+
+    private static void row(String label, Map<String, Long> shared, Map<String, Long> injected, Metric metric) {
+        System.out.printf("%-40s %16.1f %16.1f%n", label, metric.value(shared), metric.value(injected));
+    }
+
+    private static Map<String, Long> launch(Path agent, String options, int loaderCount)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-javaagent:" + agent.toAbsolutePath() + options);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(MetaspaceProbe.class.getName());
+        command.add(Integer.toString(loaderCount));
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        Map<String, Long> results = new HashMap<>();
+        List<String> output = new ArrayList<>();
+        try (BufferedReader reader =
+                new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                output.add(line);
+                List<String> keyValue = Splitter.on('=').limit(2).splitToList(line);
+                if (keyValue.size() == 2) {
+                    results.put(keyValue.get(0), Long.parseLong(keyValue.get(1)));
+                }
+            }
+        }
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new IllegalStateException("Metaspace probe exited with status " + exitCode + ":\n"
+                    + String.join("\n", output));
+        }
+        return results;
+    }
+
+    private MetaspaceBenchmark() {}
+}
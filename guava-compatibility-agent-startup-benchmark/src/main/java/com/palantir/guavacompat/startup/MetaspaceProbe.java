@@ -0,0 +1,225 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.startup;
+
+import com.google.common.util.concurrent.Futures;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import net.bytebuddy.jar.asm.ClassWriter;
+import net.bytebuddy.jar.asm.MethodVisitor;
+import net.bytebuddy.jar.asm.Opcodes;
+
+/**
+ * Entry point of the JVMs launched by {@link MetaspaceBenchmark}. Creates class loaders which each define their own
+ * modern guava, including failureaccess, and a plugin class which invokes legacy apis, like the tenants of a plugin
+ * host. Prints the metaspace used while the loaders are reachable and after they have been discarded as
+ * {@code key=value} lines.
+ */
+@SuppressWarnings("BanSystemOut")
+public final class MetaspaceProbe {
+
+    static final String BASELINE = "baselineMetaspaceBytes";
+    static final String LOADED = "loadedMetaspaceBytes";
+    static final String UNLOADED = "unloadedMetaspaceBytes";
+    static final String LOADED_CLASSES = "loadedClasses";
+    static final String UNLOADED_CLASSES = "unloadedClasses";
+    static final String FAILED_CALLS = "failedCalls";
+
+    private static final String FAILURE_ACCESS =
+            "com.google.common.util.concurrent.internal.InternalFutureFailureAccess";
+    private static final String PLUGIN = "com.palantir.guavacompat.startup.plugin.Plugin";
+    private static final String[] PLUGIN_METHODS = {
+        "firstNonNull", "toStringHelper", "transform", "sameThreadExecutor",
+    };
+
+    public static void main(String[] args) throws ReflectiveOperationException {
+        int loaderCount = Integer.parseInt(args[0]);
+        URL[] guava = {
+            Futures.class.getProtectionDomain().getCodeSource().getLocation(),
+            // A transitive dependency of guava, which isn't referenced directly
+            Class.forName(FAILURE_ACCESS).getProtectionDomain().getCodeSource().getLocation(),
+        };
+        byte[] plugin = generatePlugin();
+        ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+
+        long baseline = metaspaceAfterGc();
+        long classesBefore = classLoading.getTotalLoadedClassCount();
+        List<PluginClassLoader> loaders = new ArrayList<>(loaderCount);
+        long failedCalls = 0;
+        for (int i = 0; i < loaderCount; i++) {
+            PluginClassLoader loader = new PluginClassLoader(guava, plugin);
+            loaders.add(loader);
+            Class<?> pluginClass = loader.loadClass(PLUGIN);
+            for (String name : PLUGIN_METHODS) {
+                Method method = pluginClass.getMethod(name);
+                try {
+                    method.invoke(null);
+                } catch (InvocationTargetException | LinkageError e) {
+                    // Without injection, helpers from the system class loader don't link against the plugin's guava
+                    failedCalls++;
+                }
+            }
+        }
+        long loaded = metaspaceAfterGc();
+        long loadedClasses = classLoading.getTotalLoadedClassCount() - classesBefore;
+
+        long unloadedBefore = classLoading.getUnloadedClassCount();
+        loaders.clear();
+        long unloaded = metaspaceAfterGc();
+
+        System.out.println(BASELINE + '=' + baseline);
+        System.out.println(LOADED + '=' + loaded);
+        System.out.println(UNLOADED + '=' + unloaded);
+        System.out.println(LOADED_CLASSES + '=' + loadedClasses);
+        System.out.println(UNLOADED_CLASSES + '=' + (classLoading.getUnloadedClassCount() - unloadedBefore));
+        System.out.println(FAILED_CALLS + '=' + failedCalls);
+    }
+
+    private static long metaspaceAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getName().equals("Metaspace")) {
+                return pool.getUsage().getUsed();
+            }
+        }
+        throw new IllegalStateException("The jvm has no metaspace memory pool");
+    }
+
+    /** Generates a plugin with a static method per legacy api, compiled against legacy guava. */
+    private static byte[] generatePlugin() {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(
+                Opcodes.V1_8,
+                Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER,
+                PLUGIN.replace('.', '/'),
+                null,
+                "java/lang/Object",
+                null);
+
+        MethodVisitor firstNonNull = method(writer, "firstNonNull");
+        firstNonNull.visitInsn(Opcodes.ACONST_NULL);
+        firstNonNull.visitLdcInsn("second");
+        firstNonNull.visitMethodInsn(
+                Opcodes.INVOKESTATIC,
+                "com/google/common/base/Objects",
+                "firstNonNull",
+                "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;",
+                false);
+        end(firstNonNull);
+
+        MethodVisitor toStringHelper = method(writer, "toStringHelper");
+        toStringHelper.visitLdcInsn("plugin");
+        toStringHelper.visitMethodInsn(
+                Opcodes.INVOKESTATIC,
+                "com/google/common/base/Objects",
+                "toStringHelper",
+                "(Ljava/lang/String;)Lcom/google/common/base/Objects$ToStringHelper;",
+                false);
+        end(toStringHelper);
+
+        MethodVisitor transform = method(writer, "transform");
+        transform.visitLdcInsn("value");
+        transform.visitMethodInsn(
+                Opcodes.INVOKESTATIC,
+                "com/google/common/util/concurrent/Futures",
+                "immediateFuture",
+                "(Ljava/lang/Object;)Lcom/google/common/util/concurrent/ListenableFuture;",
+                false);
+        transform.visitMethodInsn(
+                Opcodes.INVOKESTATIC,
+                "com/google/common/base/Functions",
+                "identity",
+                "()Lcom/google/common/base/Function;",
+                false);
+        transform.visitMethodInsn(
+                Opcodes.INVOKESTATIC,
+                "com/google/common/util/concurrent/Futures",
+                "transform",
+                "(Lcom/google/common/util/concurrent/ListenableFuture;Lcom/google/common/base/Function;)"
+                        + "Lcom/google/common/util/concurrent/ListenableFuture;",
+                false);
+        end(transform);
+
+        MethodVisitor sameThreadExecutor = method(writer, "sameThreadExecutor");
+        sameThreadExecutor.visitMethodInsn(
+                Opcodes.INVOKESTATIC,
+                "com/google/common/util/concurrent/MoreExecutors",
+                "sameThreadExecutor",
+                "()Lcom/google/common/util/concurrent/ListeningExecutorService;",
+                false);
+        end(sameThreadExecutor);
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static MethodVisitor method(ClassWriter writer, String name) {
+        MethodVisitor method =
+                writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, name, "()Ljava/lang/Object;", null, null);
+        method.visitCode();
+        return method;
+    }
+
+    private static void end(MethodVisitor method) {
+        method.visitInsn(Opcodes.ARETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+    }
+
+    /** Defines its own guava and the plugin, and delegates everything else, including the agent, to the system. */
+    private static final class PluginClassLoader extends URLClassLoader {
+        private final byte[] plugin;
+
+        PluginClassLoader(URL[] guava, byte[] plugin) {
+            super(guava, new HidingGuavaClassLoader());
+            this.plugin = plugin;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            if (name.equals(PLUGIN)) {
+                return defineClass(name, plugin, 0, plugin.length);
+            }
+            return super.findClass(name);
+        }
+    }
+
+    private static final class HidingGuavaClassLoader extends ClassLoader {
+        HidingGuavaClassLoader() {
+            super(MetaspaceProbe.class.getClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (name.startsWith("com.google.common.")) {
+                throw new ClassNotFoundException(name);
+            }
+            return super.loadClass(name, resolve);
+        }
+    }
+
+    private MetaspaceProbe() {}
+}
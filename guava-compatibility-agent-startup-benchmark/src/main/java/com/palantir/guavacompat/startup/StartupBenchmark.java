@@ -0,0 +1,214 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.startup;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Measures the startup overhead of the agent. For each requested class count, a set of synthetic jars is generated
+ * and {@link StartupProbe} is launched repeatedly with and without {@code -javaagent}. Reports the median of each
+ * measurement, from which premain time and the per-class transformation cost are derived.
+ *
+ * <p>With several thread counts, classes are loaded by that many threads in parallel, and the speedup of class
+ * loading over the first thread count is reported, which should be the same with and without the agent.
+ *
+ * <p>Arguments: {@code --classes 10000,25000,50000 --jars 2000 --iterations 5 --threads 1,8,32
+ * --agentOptions redirectCallSites=true}
+ */
+@SuppressWarnings("BanSystemOut")
+public final class StartupBenchmark {
+
+    private static final String AGENT_PROPERTY = "guava-compat.agent";
+    private static final String WORK_DIR_PROPERTY = "guava-compat.work-dir";
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path agent = Paths.get(requiredProperty(AGENT_PROPERTY));
+        Path workDir = Paths.get(requiredProperty(WORK_DIR_PROPERTY));
+        Map<String, String> options = parseArguments(args);
+        List<Integer> classCounts = integers(options.getOrDefault("classes", "10000,25000,50000"));
+        List<Integer> threadCounts = integers(options.getOrDefault("threads", "1"));
+        String agentOptions = options.containsKey("agentOptions") ? "=" + options.get("agentOptions") : "";
+        int jarCount = Integer.parseInt(options.getOrDefault("jars", "2000"));
+        int iterations = Integer.parseInt(options.getOrDefault("iterations", "5"));
+
+        for (int classCount : classCounts) {
+            List<Path> jars = SyntheticClasses.generate(workDir, classCount, jarCount);
+            // Untimed launch to warm the page cache with the generated jars
+            launch(Optional.empty(), jars, classCount, 1);
+            Map<String, Long> firstBaseline = null;
+            Map<String, Long> firstWithAgent = null;
+            for (int threadCount : threadCounts) {
+                Map<String, Long> baseline = measure(Optional.empty(), jars, classCount, threadCount, iterations);
+                Map<String, Long> withAgent = measure(
+                        Optional.of(agent.toAbsolutePath() + agentOptions), jars, classCount, threadCount, iterations);
+                if (firstBaseline == null) {
+                    firstBaseline = baseline;
+                    firstWithAgent = withAgent;
+                }
+                report(classCount, jarCount, threadCount, baseline, withAgent);
+                if (threadCounts.size() > 1) {
+                    speedup(threadCounts.get(0), firstBaseline, firstWithAgent, baseline, withAgent);
+                }
+            }
+        }
+    }
+
+    private static List<Integer> integers(String values) {
+        return Lists.transform(Splitter.on(',').trimResults().splitToList(values), Integer::parseInt);
+    }
+
+    private static void report(
+            int classCount,
+            int jarCount,
+            int threadCount,
+            Map<String, Long> baseline,
+            Map<String, Long> withAgent) {
+        System.out.printf(
+                "%n%d classes in %d jars loaded by %d threads (median values)%n", classCount, jarCount, threadCount);
+        System.out.printf("%-34s %12s %12s %12s%n", "", "baseline", "agent", "overhead");
+        row("jvm start to main, incl. premain", "ms", StartupProbe.JVM_START_TO_MAIN, 1, baseline, withAgent);
+        row("class loading", "ms", StartupProbe.CLASS_LOADING, 1_000_000, baseline, withAgent);
+        row("class loading per class", "ns", StartupProbe.CLASS_LOADING, classCount, baseline, withAgent);
+        row("first request", "ms", StartupProbe.FIRST_REQUEST, 1_000_000, baseline, withAgent);
+        row("time to first request", "ms", StartupProbe.TIME_TO_FIRST_REQUEST, 1, baseline, withAgent);
+    }
+
+    private static void row(
+            String label,
+            String unit,
+            String key,
+            long divisor,
+            Map<String, Long> baseline,
+            Map<String, Long> withAgent) {
+        double baselineValue = (double) baseline.get(key) / divisor;
+        double agentValue = (double) withAgent.get(key) / divisor;
+        System.out.printf(
+                "%-34s %12.2f %12.2f %12.2f%n",
+                label + " (" + unit + ")", baselineValue, agentValue, agentValue - baselineValue);
+    }
+
+    /** Reports how many times faster classes were loaded than with the first thread count. */
+    private static void speedup(
+            int firstThreadCount,
+            Map<String, Long> firstBaseline,
+            Map<String, Long> firstWithAgent,
+            Map<String, Long> baseline,
+            Map<String, Long> withAgent) {
+        double baselineSpeedup = (double) firstBaseline.get(StartupProbe.CLASS_LOADING)
+                / baseline.get(StartupProbe.CLASS_LOADING);
+        double agentSpeedup = (double) firstWithAgent.get(StartupProbe.CLASS_LOADING)
+                / withAgent.get(StartupProbe.CLASS_LOADING);
+        System.out.printf(
+                "%-34s %12.2f %12.2f %12.2f%n",
+                "class loading speedup vs " + firstThreadCount + " (x)",
+                baselineSpeedup,
+                agentSpeedup,
+                agentSpeedup - baselineSpeedup);
+    }
+
+    private static Map<String, Long> measure(
+            Optional<String> agent, List<Path> jars, int classCount, int threadCount, int iterations)
+            throws IOException, InterruptedException {
+        Map<String, List<Long>> samples = new HashMap<>();
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            launch(agent, jars, classCount, threadCount)
+                    .forEach((key, value) ->
+                            samples.computeIfAbsent(key, _key -> new ArrayList<>()).add(value));
+        }
+        Map<String, Long> medians = new HashMap<>();
+        samples.forEach((key, values) -> {
+            Collections.sort(values);
+            medians.put(key, values.get(values.size() / 2));
+        });
+        return medians;
+    }
+
+    /** Launches the probe, with the agent if given, which is its path followed by any options. */
+    private static Map<String, Long> launch(Optional<String> agent, List<Path> jars, int classCount, int threadCount)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        agent.ifPresent(javaAgent -> command.add("-javaagent:" + javaAgent));
+        command.add("-cp");
+        List<String> classpath = new ArrayList<>();
+        classpath.add(System.getProperty("java.class.path"));
+        jars.forEach(jar -> classpath.add(jar.toString()));
+        command.add(String.join(File.pathSeparator, classpath));
+        command.add(StartupProbe.class.getName());
+        command.add(Integer.toString(classCount));
+        command.add(Integer.toString(threadCount));
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        Map<String, Long> results = new HashMap<>();
+        List<String> output = new ArrayList<>();
+        try (BufferedReader reader =
+                new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                output.add(line);
+                List<String> keyValue = Splitter.on('=').limit(2).splitToList(line);
+                if (keyValue.size() == 2) {
+                    results.put(keyValue.get(0), Long.parseLong(keyValue.get(1)));
+                }
+            }
+        }
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new IllegalStateException("Startup probe exited with status " + exitCode + ":\n"
+                    + String.join("\n", output));
+        }
+        return results;
+    }
+
+    private static Map<String, String> parseArguments(String[] args) {
+        if (args.length % 2 != 0) {
+            throw new IllegalArgumentException("Expected pairs of '--option value' arguments");
+        }
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Expected an option name, found: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    private static String requiredProperty(String name) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            throw new IllegalStateException("Missing required system property: " + name);
+        }
+        return value;
+    }
+
+    private StartupBenchmark() {}
+}
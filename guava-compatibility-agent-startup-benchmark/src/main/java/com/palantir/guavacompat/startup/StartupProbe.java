@@ -0,0 +1,114 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.startup;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Entry point of the JVMs launched by {@link StartupBenchmark}. Loads and initializes every synthetic class, from one
+ * or more threads, then handles a single request through guava, and prints its measurements as {@code key=value}
+ * lines.
+ */
+@SuppressWarnings("BanSystemOut")
+public final class StartupProbe {
+
+    static final String JVM_START_TO_MAIN = "jvmStartToMainMillis";
+    static final String CLASS_LOADING = "classLoadingNanos";
+    static final String FIRST_REQUEST = "firstRequestNanos";
+    static final String TIME_TO_FIRST_REQUEST = "timeToFirstRequestMillis";
+
+    public static void main(String[] args) throws ExecutionException, InterruptedException {
+        // Read the clock before anything else, premain and agent class loading have already happened at this point.
+        long mainEntryMillis = System.currentTimeMillis();
+        int classCount = Integer.parseInt(args[0]);
+        int threadCount = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+
+        long classLoadingNanos = loadClasses(classCount, threadCount);
+
+        long requestStart = System.nanoTime();
+        handleRequest();
+        long firstRequestNanos = System.nanoTime() - requestStart;
+        long firstRequestCompleteMillis = System.currentTimeMillis();
+
+        long jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+        System.out.println(JVM_START_TO_MAIN + '=' + (mainEntryMillis - jvmStartMillis));
+        System.out.println(CLASS_LOADING + '=' + classLoadingNanos);
+        System.out.println(FIRST_REQUEST + '=' + firstRequestNanos);
+        System.out.println(TIME_TO_FIRST_REQUEST + '=' + (firstRequestCompleteMillis - jvmStartMillis));
+    }
+
+    /**
+     * Loads and initializes the synthetic classes, divided between the given number of threads which start together
+     * as the threads of a service's startup would, and returns the wall-clock time taken.
+     */
+    private static long loadClasses(int classCount, int threadCount) throws ExecutionException, InterruptedException {
+        ClassLoader loader = StartupProbe.class.getClassLoader();
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            CyclicBarrier start = new CyclicBarrier(threadCount + 1);
+            List<Future<?>> loaders = new ArrayList<>(threadCount);
+            for (int thread = 0; thread < threadCount; thread++) {
+                int first = thread;
+                loaders.add(executor.submit(() -> {
+                    start.await();
+                    for (int index = first; index < classCount; index += threadCount) {
+                        Class.forName(className(index), true, loader);
+                    }
+                    return null;
+                }));
+            }
+            start.await();
+            long loadingStart = System.nanoTime();
+            for (Future<?> future : loaders) {
+                future.get();
+            }
+            return System.nanoTime() - loadingStart;
+        } catch (BrokenBarrierException e) {
+            throw new ExecutionException(e);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /** Touches each of the guava types rewritten by the agent, as the first request of a typical service would. */
+    private static String handleRequest() throws ExecutionException {
+        ListenableFuture<String> request = Futures.immediateFuture("request");
+        ListenableFuture<String> response = Futures.transform(
+                request,
+                input -> MoreObjects.firstNonNull(input, "default") + "-handled",
+                MoreExecutors.newDirectExecutorService());
+        return Futures.getDone(response);
+    }
+
+    static String className(int index) {
+        return "com.palantir.guavacompat.startup.synthetic.p" + (index / 1000) + ".Synthetic" + index;
+    }
+
+    private StartupProbe() {}
+}
@@ -0,0 +1,97 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.startup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import net.bytebuddy.jar.asm.ClassWriter;
+import net.bytebuddy.jar.asm.MethodVisitor;
+import net.bytebuddy.jar.asm.Opcodes;
+
+/** Writes jars of trivial classes which stand in for the application classes of a large service. */
+final class SyntheticClasses {
+
+    private static final String COMPLETE_MARKER = "complete";
+
+    /**
+     * Writes {@code classCount} classes distributed round-robin over {@code jarCount} jars in {@code directory},
+     * reusing the output of a previous run with the same parameters.
+     */
+    static List<Path> generate(Path directory, int classCount, int jarCount) throws IOException {
+        Path jarDirectory = directory.resolve("classes-" + classCount + "-jars-" + jarCount);
+        List<Path> jars = new ArrayList<>(jarCount);
+        for (int jar = 0; jar < jarCount; jar++) {
+            jars.add(jarDirectory.resolve("synthetic-" + jar + ".jar"));
+        }
+        Path marker = jarDirectory.resolve(COMPLETE_MARKER);
+        if (Files.exists(marker)) {
+            return jars;
+        }
+        Files.createDirectories(jarDirectory);
+        for (int jar = 0; jar < jarCount; jar++) {
+            try (OutputStream stream = Files.newOutputStream(jars.get(jar));
+                    JarOutputStream output = new JarOutputStream(stream)) {
+                for (int index = jar; index < classCount; index += jarCount) {
+                    output.putNextEntry(new JarEntry(StartupProbe.className(index).replace('.', '/') + ".class"));
+                    output.write(generateClass(index));
+                    output.closeEntry();
+                }
+            }
+        }
+        Files.createFile(marker);
+        return jars;
+    }
+
+    /** Generates a class with a constructor and a static method, so loading it includes linking and verification. */
+    private static byte[] generateClass(int index) {
+        String internalName = StartupProbe.className(index).replace('.', '/');
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(
+                Opcodes.V1_8,
+                Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER,
+                internalName,
+                null,
+                "java/lang/Object",
+                null);
+
+        MethodVisitor constructor = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        constructor.visitInsn(Opcodes.RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+
+        MethodVisitor value = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "value", "()I", null, null);
+        value.visitCode();
+        value.visitLdcInsn(index);
+        value.visitInsn(Opcodes.IRETURN);
+        value.visitMaxs(0, 0);
+        value.visitEnd();
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private SyntheticClasses() {}
+}
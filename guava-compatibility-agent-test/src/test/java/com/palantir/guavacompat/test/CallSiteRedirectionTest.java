@@ -0,0 +1,59 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CallSiteRedirectionTest {
+
+    @BeforeEach
+    void beforeEach() {
+        assumeTrue(
+                System.getProperty("guava-compat.agent-options", "").contains("redirectCallSites=true"),
+                "Call sites are only redirected when the agent is configured to do so");
+    }
+
+    @Test
+    void transformInvokesModernGuavaDirectly() throws ExecutionException, InterruptedException {
+        ListenableFuture<String> input = Futures.immediateFuture("Hello");
+        ListenableFuture<Long> transformed = Futures.transform(input, new Function<String, Long>() {
+            @Override
+            public Long apply(String _input) {
+                long frames = 0;
+                for (StackTraceElement element : new Throwable().getStackTrace()) {
+                    if (element.getClassName().equals(Futures.class.getName())
+                            && element.getMethodName().equals("transform")) {
+                        frames++;
+                    }
+                }
+                return frames;
+            }
+        });
+        // Without redirection the shim defined on Futures calls the modern three argument overload, and fused
+        // transforms don't call Futures.transform at all
+        boolean fused = System.getProperty("guava-compat.agent-options", "").contains("fuseTransforms=true");
+        assertThat(transformed.get()).isEqualTo(fused ? 0 : 1);
+    }
+}
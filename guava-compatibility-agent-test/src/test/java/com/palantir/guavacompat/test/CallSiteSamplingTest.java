@@ -0,0 +1,61 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.google.common.base.Objects;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CallSiteSamplingTest {
+
+    @BeforeEach
+    void beforeEach() {
+        assumeTrue(
+                System.getProperty("guava-compat.agent-options", "").contains("sampleRate=1,"),
+                "Every invocation is only sampled when the agent is configured to do so");
+    }
+
+    @Test
+    void attributesInvocationsToCaller() throws JMException {
+        assertThat(Objects.firstNonNull(null, "second")).isEqualTo("second");
+        assertThat(sampledCallSites())
+                .anySatisfy(callSite -> assertThat(callSite)
+                        .startsWith("Objects.firstNonNull(Object, Object) <- " + getClass().getName()
+                                + ".attributesInvocationsToCaller("));
+    }
+
+    private static List<String> sampledCallSites() throws JMException {
+        TabularData callSites = (TabularData) ManagementFactory.getPlatformMBeanServer()
+                .getAttribute(
+                        new ObjectName("com.palantir.guavacompat:type=LegacyApiInvocations"), "SampledCallSites");
+        List<String> result = new ArrayList<>();
+        for (Object row : callSites.values()) {
+            result.add((String) ((CompositeData) row).get("key"));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CallbackReroutingTest {
+
+    @BeforeEach
+    void beforeEach() {
+        assumeTrue(
+                System.getProperty("guava-compat.agent-options", "").contains("reroute=" + getClass().getName()),
+                "Callbacks are only rerouted when the agent is configured to do so");
+    }
+
+    @Test
+    void transformRunsOnRerouteExecutor() throws ExecutionException, InterruptedException, JMException {
+        long before = reroutedCallbacks("Futures.transform(ListenableFuture, Function)");
+        ListenableFuture<Thread> transformed =
+                Futures.transform(Futures.immediateFuture("input"), new Function<String, Thread>() {
+                    @Override
+                    public Thread apply(String _input) {
+                        return Thread.currentThread();
+                    }
+                });
+        assertThat(transformed.get()).isNotSameAs(Thread.currentThread());
+        assertThat(reroutedCallbacks("Futures.transform(ListenableFuture, Function)"))
+                .isEqualTo(before + 1);
+    }
+
+    @Test
+    void callbackRunsOnRerouteExecutor()
+            throws ExecutionException, InterruptedException, TimeoutException, JMException {
+        CompletableFuture<Thread> callbackThread = new CompletableFuture<>();
+        Futures.addCallback(Futures.immediateFuture("input"), new FutureCallback<String>() {
+            @Override
+            public void onSuccess(String _result) {
+                callbackThread.complete(Thread.currentThread());
+            }
+
+            @Override
+            public void onFailure(Throwable throwable) {
+                callbackThread.completeExceptionally(throwable);
+            }
+        });
+        assertThat(callbackThread.get(10, TimeUnit.SECONDS))
+                .isNotSameAs(Thread.currentThread())
+                .extracting(Thread::getName)
+                .asString()
+                .startsWith("guava-compatibility-agent-rerouted-");
+        assertThat(reroutedCallbacks("Futures.addCallback(ListenableFuture, FutureCallback)"))
+                .isPositive();
+    }
+
+    private static long reroutedCallbacks(String signature) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.palantir.guavacompat:type=LegacyApiInvocations");
+        // The MBean is registered when the first callback is rerouted
+        if (!server.isRegistered(name)) {
+            return 0;
+        }
+        TabularData counts = (TabularData) server.getAttribute(name, "ReroutedCallbacks");
+        CompositeData row = counts.get(new Object[] {signature});
+        return row == null ? 0 : (Long) row.get("value");
+    }
+}
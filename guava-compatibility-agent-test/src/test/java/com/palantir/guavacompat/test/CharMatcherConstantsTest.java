@@ -0,0 +1,44 @@
+/*
+ * (c) Copyright 2023 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.base.CharMatcher;
+import java.lang.reflect.Modifier;
+import org.junit.jupiter.api.Test;
+
+class CharMatcherConstantsTest {
+
+    @Test
+    void readsConstants() {
+        assertThat(CharMatcher.WHITESPACE.trimFrom(" \tvalue\n")).isEqualTo("value");
+        assertThat(CharMatcher.DIGIT.retainFrom("a1b2c3")).isEqualTo("123");
+        assertThat(CharMatcher.JAVA_LETTER.removeFrom("a1b2c3")).isEqualTo("123");
+        assertThat(CharMatcher.ASCII.matchesAllOf("ascii")).isTrue();
+        assertThat(CharMatcher.NONE.matchesAnyOf("anything")).isFalse();
+    }
+
+    @Test
+    void initializesConstantsFromFactories() throws ReflectiveOperationException {
+        // The factories don't exist in the guava which the tests are compiled against
+        Object whitespace = CharMatcher.class.getMethod("whitespace").invoke(null);
+        assertThat(CharMatcher.WHITESPACE).isSameAs(whitespace);
+        assertThat(CharMatcher.class.getField("WHITESPACE").getModifiers())
+                .isEqualTo(Modifier.PUBLIC | Modifier.STATIC | Modifier.FINAL);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.base.Objects;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.net.URL;
+import java.net.URLClassLoader;
+import org.junit.jupiter.api.Test;
+
+class ClassLoaderIsolationTest {
+
+    @Test
+    void shimsLinkAgainstTheGuavaOfTheirClassLoader() throws Exception {
+        URL guava = Objects.class.getProtectionDomain().getCodeSource().getLocation();
+        URL tests = Caller.class.getProtectionDomain().getCodeSource().getLocation();
+        // Like a plugin host, the parent provides everything but guava, including the agent's helper classes
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {guava, tests}, new HidingGuavaClassLoader())) {
+            Class<?> isolatedCaller = loader.loadClass(Caller.class.getName());
+            assertThat(isolatedCaller.getMethod("firstNonNull").invoke(null)).isEqualTo("second");
+            Class<?> isolatedObjects = loader.loadClass(Objects.class.getName());
+            assertThat(isolatedObjects).isNotEqualTo(Objects.class);
+            assertThat(isolatedObjects.getClassLoader()).isSameAs(loader);
+        }
+    }
+
+    @Test
+    void helpersLinkAgainstTheGuavaOfTheirClassLoader() throws Exception {
+        URL guava = Objects.class.getProtectionDomain().getCodeSource().getLocation();
+        URL tests = Caller.class.getProtectionDomain().getCodeSource().getLocation();
+        // The helpers in the agent jar extend and implement the parent's guava, which this loader doesn't see. With
+        // call-site redirection, the caller refers to the helpers without loading the shimmed guava classes.
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {guava, tests}, new HidingGuavaClassLoader())) {
+            Class<?> isolatedCaller = loader.loadClass(Caller.class.getName());
+            assertThat(isolatedCaller.getMethod("sameThreadExecutor").invoke(null)).isEqualTo("ran");
+            assertThat(isolatedCaller.getMethod("toStringHelper").invoke(null)).isEqualTo("Caller{value=1}");
+            assertThat(isolatedCaller.getMethod("withFallback").invoke(null)).isEqualTo("fallback");
+        }
+    }
+
+    private static final class HidingGuavaClassLoader extends ClassLoader {
+        HidingGuavaClassLoader() {
+            super(ClassLoaderIsolationTest.class.getClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (name.startsWith("com.google.common.") || name.equals(Caller.class.getName())) {
+                throw new ClassNotFoundException(name);
+            }
+            return super.loadClass(name, resolve);
+        }
+    }
+
+    public static final class Caller {
+        public static String firstNonNull() {
+            return Objects.firstNonNull(null, "second");
+        }
+
+        public static String sameThreadExecutor() throws Exception {
+            return MoreExecutors.sameThreadExecutor().submit(() -> "ran").get();
+        }
+
+        public static String toStringHelper() {
+            return Objects.toStringHelper("Caller").add("value", 1).toString();
+        }
+
+        public static String withFallback() throws Exception {
+            return Futures.withFallback(
+                            Futures.<String>immediateFailedFuture(new IllegalStateException()),
+                            _throwable -> Futures.immediateFuture("fallback"))
+                    .get();
+        }
+
+        private Caller() {}
+    }
+}
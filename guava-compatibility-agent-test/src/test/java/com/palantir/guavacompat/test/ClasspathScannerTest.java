@@ -0,0 +1,67 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.google.common.base.Objects;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ClasspathScannerTest {
+
+    private static final String SCOPE_OPTION = "callSiteScope=";
+
+    private Path scopeFile;
+
+    @BeforeEach
+    void beforeEach() {
+        String options = System.getProperty("guava-compat.agent-options", "");
+        assumeTrue(options.contains(SCOPE_OPTION), "The scan is only written when the scope is passed to the agent");
+        String scope = options.substring(options.indexOf(SCOPE_OPTION) + SCOPE_OPTION.length());
+        scopeFile = Paths.get(scope.contains(",") ? scope.substring(0, scope.indexOf(',')) : scope);
+    }
+
+    @Test
+    void reportsReconstitutedCallSites() throws IOException {
+        assertThat(Objects.firstNonNull(null, "second")).isEqualTo("second");
+        // The report is written alongside the scope
+        assertThat(Files.readAllLines(scopeFile.resolveSibling("call-sites.tsv"), StandardCharsets.UTF_8))
+                .anySatisfy(line -> assertThat(line)
+                        .startsWith("RECONSTITUTED\tObjects.firstNonNull(Object, Object)\t" + getClass().getName()));
+    }
+
+    @Test
+    void scopeContainsCallers() throws IOException, URISyntaxException {
+        Path testClasses =
+                Paths.get(getClass().getProtectionDomain().getCodeSource().getLocation().toURI());
+        assertThat(Files.readAllLines(scopeFile, StandardCharsets.UTF_8))
+                .contains(testClasses.toAbsolutePath().normalize().toString());
+    }
+
+    @Test
+    void scopeExcludesGuava() throws IOException {
+        assertThat(Files.readAllLines(scopeFile, StandardCharsets.UTF_8)).noneMatch(line -> line.contains("guava-32"));
+    }
+}
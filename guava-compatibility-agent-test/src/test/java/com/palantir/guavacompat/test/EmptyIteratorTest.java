@@ -17,18 +17,47 @@
 package com.palantir.guavacompat.test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 import com.google.common.collect.Iterators;
+import java.lang.management.ManagementFactory;
 import java.util.Iterator;
-import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
 class EmptyIteratorTest {
 
     @Test
-    @Disabled("Iterators.emptyIterator() backcompat has not been implemented yet")
-    void useSameThreadExecutor() {
+    void emptyIterator() {
         Iterator<String> empty = Iterators.emptyIterator();
         assertThat(empty).isExhausted();
     }
+
+    @Test
+    void emptyIteratorIsShared() {
+        assertThat(Iterators.<String>emptyIterator()).isSameAs(Iterators.<Integer>emptyIterator());
+    }
+
+    @Test
+    void emptyIteratorDoesNotAllocate() {
+        assumeTrue(
+                ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+                "Allocation is measured using the HotSpot ThreadMXBean");
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        // Loads and links the shimmed Iterators, and warms up the measurement itself
+        assertThat(Iterators.emptyIterator().hasNext()).isFalse();
+        threads.getThreadAllocatedBytes(threadId);
+        long before = threads.getThreadAllocatedBytes(threadId);
+        int exhausted = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (!Iterators.emptyIterator().hasNext()) {
+                exhausted++;
+            }
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        assertThat(exhausted).isEqualTo(100_000);
+        // Far less than a single 16 byte object per invocation
+        assertThat(allocated).isLessThan(10_000);
+    }
 }
@@ -0,0 +1,217 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.Test;
+
+/** Behavior shared by the legacy transform shims with and without {@code fuseTransforms}. */
+class FusedTransformsTest {
+
+    private static final Function<Integer, Integer> INCREMENT = new Function<Integer, Integer>() {
+        @Override
+        public Integer apply(Integer input) {
+            return input + 1;
+        }
+    };
+
+    @Test
+    void chainedTransformsComplete() throws ExecutionException, InterruptedException {
+        SettableFuture<Integer> input = SettableFuture.create();
+        ListenableFuture<Integer> output = chain(input, 20);
+        assertThat(output.isDone()).isFalse();
+        input.set(0);
+        assertThat(output.get()).isEqualTo(20);
+    }
+
+    @Test
+    void longChainsCompleteWithoutRecursion() throws ExecutionException, InterruptedException {
+        assumeTrue(
+                System.getProperty("guava-compat.agent-options", "").contains("fuseTransforms=true"),
+                "Only fused transforms complete without recursion");
+        SettableFuture<Integer> input = SettableFuture.create();
+        ListenableFuture<Integer> output = chain(input, 100_000);
+        input.set(0);
+        assertThat(output.get()).isEqualTo(100_000);
+    }
+
+    @Test
+    void failuresPropagate() {
+        SettableFuture<Integer> input = SettableFuture.create();
+        ListenableFuture<Integer> output = chain(input, 20);
+        IllegalStateException failure = new IllegalStateException();
+        input.setException(failure);
+        assertThatThrownBy(output::get).isInstanceOf(ExecutionException.class).hasCause(failure);
+    }
+
+    @Test
+    void functionFailuresPropagate() {
+        SettableFuture<Integer> input = SettableFuture.create();
+        IllegalStateException failure = new IllegalStateException();
+        ListenableFuture<Integer> output = chain(
+                Futures.transform(input, new Function<Integer, Integer>() {
+                    @Override
+                    public Integer apply(Integer _input) {
+                        throw failure;
+                    }
+                }),
+                20);
+        input.set(0);
+        assertThatThrownBy(output::get).isInstanceOf(ExecutionException.class).hasCause(failure);
+    }
+
+    @Test
+    void functionsSeeTheStagesOfFuturesTheyCompleteDone() throws ExecutionException, InterruptedException {
+        SettableFuture<Integer> input = SettableFuture.create();
+        SettableFuture<Integer> other = SettableFuture.create();
+        ListenableFuture<Integer> otherOutput = chain(other, 5);
+        ListenableFuture<Integer> output = chain(
+                Futures.transform(input, new Function<Integer, Integer>() {
+                    @Override
+                    public Integer apply(Integer value) {
+                        other.set(value);
+                        // Waiting on a stage which was only queued would block forever
+                        assertThat(otherOutput.isDone()).isTrue();
+                        return Futures.getUnchecked(otherOutput);
+                    }
+                }),
+                5);
+        input.set(0);
+        assertThat(output.get()).isEqualTo(10);
+    }
+
+    @Test
+    void callbacksSeeTheStagesOfFuturesTheyCompleteDone() {
+        SettableFuture<Integer> input = SettableFuture.create();
+        SettableFuture<Integer> other = SettableFuture.create();
+        ListenableFuture<Integer> otherOutput = chain(other, 5);
+        List<Boolean> observed = new ArrayList<>();
+        Futures.addCallback(chain(input, 5), new FutureCallback<Integer>() {
+            @Override
+            public void onSuccess(Integer result) {
+                other.set(result);
+                observed.add(otherOutput.isDone());
+            }
+
+            @Override
+            public void onFailure(Throwable _throwable) {}
+        });
+        input.set(0);
+        assertThat(observed).containsExactly(true);
+    }
+
+    @Test
+    void listenersSeeTransformsTheyCreateDone() throws ExecutionException, InterruptedException {
+        SettableFuture<Integer> input = SettableFuture.create();
+        ListenableFuture<Integer> output = chain(input, 5);
+        List<Integer> observed = new ArrayList<>();
+        output.addListener(
+                () -> {
+                    ListenableFuture<Integer> transformed = Futures.transform(Futures.immediateFuture(1), INCREMENT);
+                    // Waiting on a stage which was only queued would block forever
+                    assertThat(transformed.isDone()).isTrue();
+                    observed.add(Futures.getUnchecked(transformed));
+                },
+                MoreExecutors.sameThreadExecutor());
+        input.set(0);
+        assertThat(output.get()).isEqualTo(5);
+        assertThat(observed).containsExactly(2);
+    }
+
+    @Test
+    void cancellingOutputCancelsInput() {
+        SettableFuture<Integer> input = SettableFuture.create();
+        ListenableFuture<Integer> middle = chain(input, 10);
+        ListenableFuture<Integer> output = chain(middle, 10);
+        assertThat(output.cancel(false)).isTrue();
+        assertThat(middle.isCancelled()).isTrue();
+        assertThat(input.isCancelled()).isTrue();
+    }
+
+    @Test
+    void cancellingInputCancelsOutput() {
+        SettableFuture<Integer> input = SettableFuture.create();
+        ListenableFuture<Integer> output = chain(input, 20);
+        input.cancel(false);
+        assertThat(output.isCancelled()).isTrue();
+    }
+
+    @Test
+    void callbacksRunInOrder() {
+        SettableFuture<Integer> input = SettableFuture.create();
+        ListenableFuture<Integer> output = chain(input, 5);
+        List<String> events = new ArrayList<>();
+        Futures.addCallback(output, recording(events, "first"));
+        Futures.addCallback(output, recording(events, "second"));
+        input.set(0);
+        Futures.addCallback(output, recording(events, "third"));
+        assertThat(events).containsExactly("first 5", "second 5", "third 5");
+    }
+
+    @Test
+    void callbacksObserveCancellation() {
+        SettableFuture<Integer> input = SettableFuture.create();
+        ListenableFuture<Integer> output = chain(input, 5);
+        List<Throwable> failures = new ArrayList<>();
+        Futures.addCallback(output, new FutureCallback<Integer>() {
+            @Override
+            public void onSuccess(Integer _result) {}
+
+            @Override
+            public void onFailure(Throwable throwable) {
+                failures.add(throwable);
+            }
+        });
+        input.cancel(false);
+        assertThat(failures).singleElement().isInstanceOf(CancellationException.class);
+    }
+
+    private static ListenableFuture<Integer> chain(ListenableFuture<Integer> input, int stages) {
+        ListenableFuture<Integer> output = input;
+        for (int i = 0; i < stages; i++) {
+            output = Futures.transform(output, INCREMENT);
+        }
+        return output;
+    }
+
+    private static FutureCallback<Integer> recording(List<String> events, String name) {
+        return new FutureCallback<Integer>() {
+            @Override
+            public void onSuccess(Integer result) {
+                events.add(name + " " + result);
+            }
+
+            @Override
+            public void onFailure(Throwable throwable) {
+                events.add(name + " " + throwable);
+            }
+        };
+    }
+}
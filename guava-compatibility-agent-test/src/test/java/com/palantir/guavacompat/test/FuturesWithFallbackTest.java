@@ -18,6 +18,7 @@ package com.palantir.guavacompat.test;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.google.common.util.concurrent.AsyncFunction;
 import com.google.common.util.concurrent.FutureFallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -53,4 +54,27 @@ class FuturesWithFallbackTest {
                 MoreExecutors.sameThreadExecutor());
         assertThat(fallback.get()).isEqualTo("fallback");
     }
+
+    @Test
+    void addFallbackWhichIsAlsoAnAsyncFunction() throws ExecutionException, InterruptedException {
+        ListenableFuture<String> future = Futures.immediateFailedFuture(new RuntimeException());
+        ListenableFuture<String> fallback = Futures.withFallback(future, new FallbackAndFunction());
+        assertThat(fallback.get()).isEqualTo("fallback");
+        ListenableFuture<String> fallbackWithExecutor =
+                Futures.withFallback(future, new FallbackAndFunction(), MoreExecutors.sameThreadExecutor());
+        assertThat(fallbackWithExecutor.get()).isEqualTo("fallback");
+    }
+
+    /** Legacy fallbacks could implement AsyncFunction too, whose apply method is unrelated to the fallback. */
+    private static final class FallbackAndFunction implements FutureFallback<String>, AsyncFunction<Throwable, String> {
+        @Override
+        public ListenableFuture<String> create(Throwable _throwable) {
+            return Futures.immediateFuture("fallback");
+        }
+
+        @Override
+        public ListenableFuture<String> apply(Throwable _throwable) {
+            return Futures.immediateFuture("function");
+        }
+    }
 }
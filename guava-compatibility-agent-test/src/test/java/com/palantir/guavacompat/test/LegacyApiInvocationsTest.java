@@ -0,0 +1,72 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.google.common.base.Objects;
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class LegacyApiInvocationsTest {
+
+    @BeforeEach
+    void beforeEach() {
+        assumeTrue(
+                System.getProperty("guava-compat.agent-options", "").contains("metrics=true"),
+                "Invocations are only counted when the agent is configured to do so");
+    }
+
+    @Test
+    void countsFirstNonNull() throws JMException {
+        // The MBean is registered by the first recorded invocation
+        assertThat(Objects.firstNonNull(null, "second")).isEqualTo("second");
+        long before = firstNonNullInvocations();
+        assertThat(Objects.firstNonNull("first", "second")).isEqualTo("first");
+        assertThat(firstNonNullInvocations()).isEqualTo(before + 1);
+    }
+
+    @Test
+    void countsPrefilteredClasses() throws JMException {
+        assertThat(Objects.firstNonNull(null, "second")).isEqualTo("second");
+        TabularData statistics = attribute("PrefilterStatistics");
+        // Every class loaded by the tests is rejected, except for the few shimmed guava classes
+        assertThat(value(statistics, "rejectedClasses")).isPositive();
+        assertThat(value(statistics, "offeredClasses")).isGreaterThan(value(statistics, "rejectedClasses"));
+        assertThat(value(statistics, "estimatedSavedMillis")).isNotNegative();
+    }
+
+    private static long firstNonNullInvocations() throws JMException {
+        return value(attribute("InvocationCounts"), "Objects.firstNonNull(Object, Object)");
+    }
+
+    private static TabularData attribute(String name) throws JMException {
+        return (TabularData) ManagementFactory.getPlatformMBeanServer()
+                .getAttribute(new ObjectName("com.palantir.guavacompat:type=LegacyApiInvocations"), name);
+    }
+
+    private static long value(TabularData data, String key) {
+        CompositeData row = data.get(new Object[] {key});
+        return (Long) row.get("value");
+    }
+}
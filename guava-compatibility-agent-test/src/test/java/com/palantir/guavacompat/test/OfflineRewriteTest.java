@@ -0,0 +1,122 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class OfflineRewriteTest {
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_CLASS = 7;
+
+    private String rewrittenGuava;
+
+    @BeforeEach
+    void beforeEach() {
+        rewrittenGuava = System.getProperty("guava-compat.rewritten-guava");
+        assumeTrue(rewrittenGuava != null, "Only the offline rewrite produces a rewritten guava jar");
+    }
+
+    @Test
+    void containsReferencedHelpers() throws IOException {
+        Set<String> missing = new TreeSet<>();
+        try (JarFile jar = new JarFile(rewrittenGuava)) {
+            Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                if (!entry.getName().endsWith(".class")) {
+                    continue;
+                }
+                // Neither guava 16 nor the agent is on this classpath, so helpers must come from the rewritten jar
+                for (String type : referencedTypes(jar, entry)) {
+                    if ((type.startsWith("com/google/common/") || type.startsWith("com/palantir/guavacompat/"))
+                            && getClass().getClassLoader().getResource(type + ".class") == null) {
+                        missing.add(type + " referenced by " + entry.getName());
+                    }
+                }
+            }
+        }
+        assertThat(missing).isEmpty();
+    }
+
+    /** Reads the internal names of the classes in a class file's constant pool, which are resolved when linked. */
+    private static List<String> referencedTypes(JarFile jar, JarEntry entry) throws IOException {
+        try (DataInputStream in = new DataInputStream(jar.getInputStream(entry))) {
+            // magic, minor_version and major_version
+            in.skipBytes(8);
+            int count = in.readUnsignedShort();
+            String[] utf8 = new String[count];
+            List<Integer> classNames = new ArrayList<>();
+            for (int i = 1; i < count; i++) {
+                int tag = in.readUnsignedByte();
+                switch (tag) {
+                    case CONSTANT_UTF8:
+                        utf8[i] = in.readUTF();
+                        break;
+                    case CONSTANT_CLASS:
+                        classNames.add(in.readUnsignedShort());
+                        break;
+                    case 5: // Long
+                    case 6: // Double
+                        in.skipBytes(8);
+                        i++;
+                        break;
+                    case 15: // MethodHandle
+                        in.skipBytes(3);
+                        break;
+                    case 8: // String
+                    case 16: // MethodType
+                    case 19: // Module
+                    case 20: // Package
+                        in.skipBytes(2);
+                        break;
+                    case 3: // Integer
+                    case 4: // Float
+                    case 9: // Fieldref
+                    case 10: // Methodref
+                    case 11: // InterfaceMethodref
+                    case 12: // NameAndType
+                    case 17: // Dynamic
+                    case 18: // InvokeDynamic
+                        in.skipBytes(4);
+                        break;
+                    default:
+                        throw new IllegalStateException("Unknown constant pool tag " + tag + " in " + entry.getName());
+                }
+            }
+            List<String> types = new ArrayList<>();
+            for (int index : classNames) {
+                // Array classes are named by their descriptor
+                types.add(utf8[index].replaceAll("^\\[+L|;$", ""));
+            }
+            return types;
+        }
+    }
+}
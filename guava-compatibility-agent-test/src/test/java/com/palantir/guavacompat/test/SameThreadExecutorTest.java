@@ -17,10 +17,20 @@
 package com.palantir.guavacompat.test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.Test;
 
 class SameThreadExecutorTest {
@@ -30,4 +40,80 @@ class SameThreadExecutorTest {
         ListeningExecutorService executor = MoreExecutors.sameThreadExecutor();
         assertThat(executor.submit(() -> "success").get()).isEqualTo("success");
     }
+
+    @Test
+    void runsTasksOnTheCallingThread() throws ExecutionException, InterruptedException {
+        ListeningExecutorService executor = MoreExecutors.sameThreadExecutor();
+        assertThat(executor.submit(Thread::currentThread).get()).isSameAs(Thread.currentThread());
+    }
+
+    @Test
+    void rejectsTasksAfterShutdown() throws InterruptedException {
+        ListeningExecutorService executor = MoreExecutors.sameThreadExecutor();
+        executor.shutdown();
+        assertThat(executor.isShutdown()).isTrue();
+        assertThat(executor.isTerminated()).isTrue();
+        assertThat(executor.awaitTermination(0, TimeUnit.SECONDS)).isTrue();
+        assertThatThrownBy(() -> executor.execute(() -> {})).isInstanceOf(RejectedExecutionException.class);
+        assertThat(executor.shutdownNow()).isEmpty();
+    }
+
+    @Test
+    void terminatesWhenRunningTasksComplete() throws Exception {
+        ListeningExecutorService executor = MoreExecutors.sameThreadExecutor();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread worker = new Thread(() -> executor.execute(() -> {
+            started.countDown();
+            awaitUninterruptibly(release);
+        }));
+        worker.start();
+        started.await();
+
+        executor.shutdown();
+        assertThat(executor.isTerminated()).isFalse();
+        assertThat(executor.awaitTermination(10, TimeUnit.MILLISECONDS)).isFalse();
+
+        release.countDown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(executor.isTerminated()).isTrue();
+        worker.join();
+    }
+
+    @Test
+    void countsTasksFromManyThreads() throws Exception {
+        ListeningExecutorService executor = MoreExecutors.sameThreadExecutor();
+        AtomicInteger executed = new AtomicInteger();
+        int threads = 16;
+        int tasksPerThread = 10_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(pool.submit(() -> {
+                    for (int j = 0; j < tasksPerThread; j++) {
+                        executor.execute(executed::incrementAndGet);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertThat(executed).hasValue(threads * tasksPerThread);
+        assertThat(executor.isTerminated()).isFalse();
+        executor.shutdown();
+        assertThat(executor.isTerminated()).isTrue();
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
 }
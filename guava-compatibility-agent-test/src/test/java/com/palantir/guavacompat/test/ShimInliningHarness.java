@@ -0,0 +1,134 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.test;
+
+import com.google.common.base.Function;
+import com.google.common.base.Objects;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.FutureFallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.concurrent.Executor;
+
+/**
+ * Invokes each shim from its own caller until the callers are compiled, for {@link ShimInliningTest}. Each caller
+ * invokes exactly one shim, so the shims are the only callees at the first level of their inlining trees.
+ */
+final class ShimInliningHarness {
+
+    /** Comfortably above the compile threshold of C2 without tiered compilation. */
+    private static final int ITERATIONS = 50_000;
+
+    private static final ListenableFuture<String> SUCCEEDED = Futures.immediateFuture("value");
+    private static final ListenableFuture<String> FAILED = Futures.immediateFailedFuture(new RuntimeException());
+    private static final Executor EXECUTOR = MoreExecutors.sameThreadExecutor();
+
+    private static final Function<String, String> FUNCTION = new Function<String, String>() {
+        @Override
+        public String apply(String input) {
+            return input;
+        }
+    };
+
+    private static final AsyncFunction<String, String> ASYNC_FUNCTION = new AsyncFunction<String, String>() {
+        @Override
+        public ListenableFuture<String> apply(String input) {
+            return SUCCEEDED;
+        }
+    };
+
+    private static final FutureCallback<String> CALLBACK = new FutureCallback<String>() {
+        @Override
+        public void onSuccess(String _result) {}
+
+        @Override
+        public void onFailure(Throwable _throwable) {}
+    };
+
+    private static final FutureFallback<String> FALLBACK = new FutureFallback<String>() {
+        @Override
+        public ListenableFuture<String> create(Throwable _throwable) {
+            return SUCCEEDED;
+        }
+    };
+
+    private static volatile Object sink;
+
+    public static void main(String[] _args) {
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink = callFirstNonNull(i % 2 == 0 ? null : "first");
+            sink = callToStringHelperObject();
+            sink = callToStringHelperClass();
+            sink = callToStringHelperString();
+            sink = callTransform();
+            sink = callTransformAsync();
+            sink = callTransformAsyncWithExecutor();
+            callAddCallback();
+            sink = callWithFallback();
+            sink = callWithFallbackWithExecutor();
+            sink = callSameThreadExecutor();
+        }
+    }
+
+    private static Object callFirstNonNull(String first) {
+        return Objects.firstNonNull(first, "second");
+    }
+
+    private static Object callToStringHelperObject() {
+        return Objects.toStringHelper(EXECUTOR);
+    }
+
+    private static Object callToStringHelperClass() {
+        return Objects.toStringHelper(ShimInliningHarness.class);
+    }
+
+    private static Object callToStringHelperString() {
+        return Objects.toStringHelper("name");
+    }
+
+    private static Object callTransform() {
+        return Futures.transform(SUCCEEDED, FUNCTION);
+    }
+
+    private static Object callTransformAsync() {
+        return Futures.transform(SUCCEEDED, ASYNC_FUNCTION);
+    }
+
+    private static Object callTransformAsyncWithExecutor() {
+        return Futures.transform(SUCCEEDED, ASYNC_FUNCTION, EXECUTOR);
+    }
+
+    private static void callAddCallback() {
+        Futures.addCallback(SUCCEEDED, CALLBACK);
+    }
+
+    private static Object callWithFallback() {
+        return Futures.withFallback(FAILED, FALLBACK);
+    }
+
+    private static Object callWithFallbackWithExecutor() {
+        return Futures.withFallback(FAILED, FALLBACK, EXECUTOR);
+    }
+
+    private static Object callSameThreadExecutor() {
+        return MoreExecutors.sameThreadExecutor();
+    }
+
+    private ShimInliningHarness() {}
+}
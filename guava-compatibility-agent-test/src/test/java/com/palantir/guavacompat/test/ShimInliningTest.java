@@ -0,0 +1,167 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs {@link ShimInliningHarness} in a jvm which prints the inlining decisions of C2, and checks that every shim is
+ * inlined into its caller. Shims must stay within {@value #MAX_INLINE_SIZE} bytes of bytecode, the default
+ * {@code MaxInlineSize}, so that they are inlined whether or not their call sites are hot.
+ */
+class ShimInliningTest {
+
+    private static final int MAX_INLINE_SIZE = 35;
+
+    private static final List<String> SHIMS = Arrays.asList(
+            "com.google.common.base.Objects::firstNonNull",
+            "com.google.common.base.Objects::toStringHelper",
+            "com.google.common.util.concurrent.Futures::transform",
+            "com.google.common.util.concurrent.Futures::addCallback",
+            "com.google.common.util.concurrent.Futures::withFallback",
+            "com.google.common.util.concurrent.MoreExecutors::sameThreadExecutor");
+
+    /** For example {@code @ 3   com.google.common.base.Objects::firstNonNull (6 bytes)   inline (hot)}. */
+    private static final Pattern INLINING = Pattern.compile("^(\\s*)@ \\d+\\s+(\\S+) \\((\\d+) bytes\\)\\s*(.*)$");
+
+    @BeforeEach
+    void beforeEach() {
+        assumeTrue(
+                System.getProperty("guava-compat.agent-options") == null,
+                "Inlining is verified once, by the tests which run with the default options");
+        assumeTrue(agentJar() != null, "Inlining is only verified with the agent");
+    }
+
+    @Test
+    void inlinesShims() throws IOException, InterruptedException {
+        assertInlined(agentJar());
+    }
+
+    @Test
+    void inlinesRecordingShims() throws IOException, InterruptedException {
+        assertInlined(agentJar() + "=metrics=true");
+    }
+
+    private static void assertInlined(String javaAgent) throws IOException, InterruptedException {
+        List<Inlining> callees = firstLevelCallees(run(javaAgent));
+        assertThat(callees).extracting(callee -> callee.method).containsAll(SHIMS);
+        assertThat(callees).allSatisfy(callee -> {
+            assertThat(callee.decision).as("Inlining of %s", callee.method).startsWith("inline");
+            assertThat(callee.bytes).as("Size of %s", callee.method).isLessThanOrEqualTo(MAX_INLINE_SIZE);
+        });
+    }
+
+    private static String run(String javaAgent) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(
+                        System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+                        "-javaagent:" + javaAgent,
+                        "-cp",
+                        System.getProperty("java.class.path"),
+                        // Only C2 decides which callees of a hot method are inlined, and compiling in the
+                        // foreground prints one compilation at a time
+                        "-XX:-TieredCompilation",
+                        "-Xbatch",
+                        "-XX:+UnlockDiagnosticVMOptions",
+                        "-XX:+PrintCompilation",
+                        "-XX:+PrintInlining",
+                        "-XX:CompileCommand=quiet",
+                        "-XX:CompileCommand=compileonly,"
+                                + ShimInliningHarness.class.getName().replace('.', '/') + ".call*",
+                        ShimInliningHarness.class.getName())
+                .redirectErrorStream(true)
+                .start();
+        String output = read(process.getInputStream());
+        assertThat(process.waitFor(1, TimeUnit.MINUTES)).isTrue();
+        assertThat(process.exitValue()).as(output).isZero();
+        return output;
+    }
+
+    private static String read(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = input.read(buffer)) >= 0) {
+            output.write(buffer, 0, read);
+        }
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the callees printed with the least indentation, which are the methods invoked directly by the harness
+     * callers, as nothing else is compiled.
+     */
+    private static List<Inlining> firstLevelCallees(String output) {
+        List<Inlining> callees = new ArrayList<>();
+        int indentation = Integer.MAX_VALUE;
+        for (String line : output.split("\\R")) {
+            Matcher matcher = INLINING.matcher(line);
+            if (!matcher.matches()) {
+                continue;
+            }
+            int lineIndentation = matcher.group(1).length();
+            if (lineIndentation < indentation) {
+                indentation = lineIndentation;
+                callees.clear();
+            }
+            if (lineIndentation == indentation) {
+                callees.add(new Inlining(
+                        matcher.group(2), Integer.parseInt(matcher.group(3)), matcher.group(4).trim()));
+            }
+        }
+        return callees;
+    }
+
+    /** Returns the path of the agent jar, and its options, if this jvm was started with the agent. */
+    private static String agentJar() {
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (argument.startsWith("-javaagent:")) {
+                String agent = argument.substring("-javaagent:".length());
+                int options = agent.indexOf('=');
+                return options < 0 ? agent : agent.substring(0, options);
+            }
+        }
+        return null;
+    }
+
+    private static final class Inlining {
+        private final String method;
+        private final int bytes;
+        private final String decision;
+
+        Inlining(String method, int bytes, String decision) {
+            this.method = method;
+            this.bytes = bytes;
+            this.decision = decision;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Starts a jvm with the {@code prewarm} option whose main method never touches guava, and checks that every shim is
+ * compiled by the time the prewarming thread finishes.
+ */
+class ShimPrewarmingTest {
+
+    private static final String PREWARM_THREAD = "guava-compatibility-agent-prewarm";
+
+    private static final List<String> SHIMS = Arrays.asList(
+            "com.google.common.base.Objects::firstNonNull",
+            "com.google.common.base.Objects::toStringHelper",
+            "com.google.common.util.concurrent.Futures::transform",
+            "com.google.common.util.concurrent.Futures::addCallback",
+            "com.google.common.util.concurrent.Futures::withFallback",
+            "com.google.common.util.concurrent.MoreExecutors::sameThreadExecutor");
+
+    @BeforeEach
+    void beforeEach() {
+        assumeTrue(
+                System.getProperty("guava-compat.agent-options") == null,
+                "Prewarming is verified once, by the tests which run with the default options");
+        assumeTrue(agentJar() != null, "Prewarming is only verified with the agent");
+    }
+
+    @Test
+    void compilesShimsInBackground() throws IOException, InterruptedException {
+        String output = run(agentJar() + "=prewarm=true");
+        assertThat(output).doesNotContain("stopped prewarming");
+        for (String shim : SHIMS) {
+            assertThat(output).as("Compilation of %s", shim).contains(shim + " (");
+        }
+    }
+
+    @Test
+    void doesNotInvokeRecordingShims() throws IOException, InterruptedException {
+        // Warming would otherwise be counted as invocations by the application
+        String output = run(agentJar() + "=prewarm=true,metrics=true");
+        assertThat(output).doesNotContain("stopped prewarming");
+        assertThat(output).doesNotContain("com.google.common.util.concurrent.Futures::withFallback (");
+    }
+
+    /** Waits for the prewarming thread, without loading any guava class itself. */
+    public static void main(String[] _args) throws InterruptedException {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals(PREWARM_THREAD)) {
+                thread.join();
+            }
+        }
+    }
+
+    private static String run(String javaAgent) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(
+                        System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+                        "-javaagent:" + javaAgent,
+                        "-cp",
+                        System.getProperty("java.class.path"),
+                        // Compiles in the foreground, so every compilation requested by the prewarming thread is
+                        // printed before it finishes
+                        "-Xbatch",
+                        "-XX:+PrintCompilation",
+                        ShimPrewarmingTest.class.getName())
+                .redirectErrorStream(true)
+                .start();
+        String output = read(process.getInputStream());
+        assertThat(process.waitFor(1, TimeUnit.MINUTES)).isTrue();
+        assertThat(process.exitValue()).as(output).isZero();
+        return output;
+    }
+
+    private static String read(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = input.read(buffer)) >= 0) {
+            output.write(buffer, 0, read);
+        }
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /** Returns the path of the agent jar if this jvm was started with the agent. */
+    private static String agentJar() {
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (argument.startsWith("-javaagent:")) {
+                String agent = argument.substring("-javaagent:".length());
+                int options = agent.indexOf('=');
+                return options < 0 ? agent : agent.substring(0, options);
+            }
+        }
+        return null;
+    }
+}
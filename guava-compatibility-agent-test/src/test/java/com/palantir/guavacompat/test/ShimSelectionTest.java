@@ -0,0 +1,63 @@
+/*
+ * (c) Copyright 2023 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.FutureFallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ShimSelectionTest {
+
+    @BeforeEach
+    void beforeEach() {
+        assumeTrue(
+                System.getProperty("guava-compat.agent-options", "").contains("disableShims=Futures.withFallback"),
+                "Shims are only omitted when the agent is configured to do so");
+    }
+
+    @Test
+    void omitsDisabledShim() {
+        ListenableFuture<String> future = Futures.immediateFailedFuture(new RuntimeException());
+        assertThatThrownBy(() -> Futures.withFallback(future, new FutureFallback<String>() {
+                    @Override
+                    public ListenableFuture<String> create(Throwable _throwable) {
+                        return Futures.immediateFuture("fallback");
+                    }
+                }))
+                .isInstanceOf(NoSuchMethodError.class);
+    }
+
+    @Test
+    void definesOtherShimsOfTheSameType() throws ExecutionException, InterruptedException {
+        ListenableFuture<String> future = Futures.immediateFuture("input");
+        ListenableFuture<String> transformed = Futures.transform(future, new Function<String, String>() {
+            @Override
+            public String apply(String input) {
+                return input + "-transformed";
+            }
+        });
+        assertThat(transformed.get()).isEqualTo("input-transformed");
+    }
+}
@@ -19,10 +19,8 @@ package com.palantir.guavacompat.test;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import com.google.common.base.Objects;
-import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
-@Disabled("Objects.ToStringHelper backcompat has not been implemented yet")
 class ToStringHelperTest {
 
     @Test
@@ -45,4 +43,18 @@ class ToStringHelperTest {
         String stringValue = toStringHelper.add("foo", "bar").toString();
         assertThat(stringValue).isEqualTo("ToStringHelperTest{foo=bar}");
     }
+
+    @Test
+    void toStringHelper_values() {
+        String stringValue = Objects.toStringHelper(this)
+                .omitNullValues()
+                .add("omitted", (Object) null)
+                .add("bool", true)
+                .add("char", 'c')
+                .add("int", 1)
+                .add("long", 2L)
+                .addValue(1.5D)
+                .toString();
+        assertThat(stringValue).isEqualTo("ToStringHelperTest{bool=true, char=c, int=1, long=2, 1.5}");
+    }
 }
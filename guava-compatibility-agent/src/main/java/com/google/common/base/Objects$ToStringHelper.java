@@ -0,0 +1,127 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.base;
+
+/**
+ * Class stub for {@code Objects.ToStringHelper} from long-deprecated guava releases of yore, which forwards to
+ * {@link MoreObjects.ToStringHelper}. Each helper holds a single delegate and returns itself from every method, which
+ * escape analysis removes entirely when a helper is built and converted to a string in one expression.
+ *
+ * <p>Injected into each class loader which defines a shimmed {@code Objects}, so that the delegate is that loader's
+ * {@code MoreObjects.ToStringHelper} rather than one from the guava of the agent's class loader.
+ */
+@SuppressWarnings("checkstyle:TypeName")
+public final class Objects$ToStringHelper {
+
+    private final MoreObjects.ToStringHelper delegate;
+
+    private Objects$ToStringHelper(MoreObjects.ToStringHelper delegate) {
+        this.delegate = delegate;
+    }
+
+    public static Objects$ToStringHelper of(Object self) {
+        return new Objects$ToStringHelper(MoreObjects.toStringHelper(self));
+    }
+
+    public static Objects$ToStringHelper of(Class<?> clazz) {
+        return new Objects$ToStringHelper(MoreObjects.toStringHelper(clazz));
+    }
+
+    public static Objects$ToStringHelper of(String className) {
+        return new Objects$ToStringHelper(MoreObjects.toStringHelper(className));
+    }
+
+    public Objects$ToStringHelper omitNullValues() {
+        delegate.omitNullValues();
+        return this;
+    }
+
+    public Objects$ToStringHelper add(String name, Object value) {
+        delegate.add(name, value);
+        return this;
+    }
+
+    public Objects$ToStringHelper add(String name, boolean value) {
+        delegate.add(name, value);
+        return this;
+    }
+
+    public Objects$ToStringHelper add(String name, char value) {
+        delegate.add(name, value);
+        return this;
+    }
+
+    public Objects$ToStringHelper add(String name, double value) {
+        delegate.add(name, value);
+        return this;
+    }
+
+    public Objects$ToStringHelper add(String name, float value) {
+        delegate.add(name, value);
+        return this;
+    }
+
+    public Objects$ToStringHelper add(String name, int value) {
+        delegate.add(name, value);
+        return this;
+    }
+
+    public Objects$ToStringHelper add(String name, long value) {
+        delegate.add(name, value);
+        return this;
+    }
+
+    public Objects$ToStringHelper addValue(Object value) {
+        delegate.addValue(value);
+        return this;
+    }
+
+    public Objects$ToStringHelper addValue(boolean value) {
+        delegate.addValue(value);
+        return this;
+    }
+
+    public Objects$ToStringHelper addValue(char value) {
+        delegate.addValue(value);
+        return this;
+    }
+
+    public Objects$ToStringHelper addValue(double value) {
+        delegate.addValue(value);
+        return this;
+    }
+
+    public Objects$ToStringHelper addValue(float value) {
+        delegate.addValue(value);
+        return this;
+    }
+
+    public Objects$ToStringHelper addValue(int value) {
+        delegate.addValue(value);
+        return this;
+    }
+
+    public Objects$ToStringHelper addValue(long value) {
+        delegate.addValue(value);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+}
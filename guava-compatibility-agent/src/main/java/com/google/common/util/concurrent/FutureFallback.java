@@ -16,8 +16,17 @@
 
 package com.google.common.util.concurrent;
 
-/** Interface stub from long-deprecated guava releases of yore. */
+/**
+ * Interface stub from long-deprecated guava releases of yore. Unlike the original, this extends
+ * {@link AsyncFunction} so that a fallback may be given to {@link Futures#catchingAsync} without an adapter, unless its
+ * class declares its own {@code apply} method.
+ */
 @SuppressWarnings("checkstyle:ParameterName")
-public interface FutureFallback<V> {
+public interface FutureFallback<V> extends AsyncFunction<Throwable, V> {
     ListenableFuture<V> create(Throwable t) throws Exception;
+
+    @Override
+    default ListenableFuture<V> apply(Throwable t) throws Exception {
+        return create(t);
+    }
 }
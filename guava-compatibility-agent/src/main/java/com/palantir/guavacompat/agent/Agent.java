@@ -16,390 +16,105 @@
 
 package com.palantir.guavacompat.agent;
 
+import java.lang.instrument.ClassFileTransformer;
 import java.lang.instrument.Instrumentation;
-import java.lang.reflect.Modifier;
-import java.util.Arrays;
-import java.util.concurrent.Executor;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import net.bytebuddy.agent.builder.AgentBuilder;
-import net.bytebuddy.description.annotation.AnnotationList;
-import net.bytebuddy.description.method.MethodDescription;
-import net.bytebuddy.description.type.TypeDescription;
-import net.bytebuddy.description.type.TypeDescription.Generic;
-import net.bytebuddy.description.type.TypeList;
-import net.bytebuddy.dynamic.DynamicType;
-import net.bytebuddy.implementation.MethodCall;
-import net.bytebuddy.implementation.MethodDelegation;
-import net.bytebuddy.jar.asm.Opcodes;
 import net.bytebuddy.matcher.ElementMatchers;
 
 public final class Agent {
 
-    private static final String OBJECTS = "com.google.common.base.Objects";
-    private static final String MORE_OBJECTS = "com.google.common.base.MoreObjects";
-    private static final String FUTURES = "com.google.common.util.concurrent.Futures";
-    private static final String LISTENABLE_FUTURE = "com.google.common.util.concurrent.ListenableFuture";
-    private static final String GUAVA_FUNCTION = "com.google.common.base.Function";
-    private static final String ASYNC_FUNCTION = "com.google.common.util.concurrent.AsyncFunction";
-    private static final String MORE_EXECUTORS = "com.google.common.util.concurrent.MoreExecutors";
-    private static final String LISTENING_EXECUTOR = "com.google.common.util.concurrent.ListeningExecutorService";
-    private static final String FUTURE_CALLBACK = "com.google.common.util.concurrent.FutureCallback";
-    private static final String FUTURE_FALLBACK = "com.google.common.util.concurrent.FutureFallback";
+    private static final String GUAVA_PACKAGE = "com.google.common.";
 
-    @SuppressWarnings("checkstyle:MethodLength")
-    public static void premain(String _args, Instrumentation instrumentation) {
-        Class<?> moreObjectsClass = loadNullable(MORE_OBJECTS);
-        if (moreObjectsClass == null) {
-            // new guava is not present, we should not attempt to route old invocations to new guava.
-            return;
+    public static void premain(String args, Instrumentation instrumentation) {
+        AgentOptions options = AgentOptions.parse(args);
+        int sampleRate = options.getInt(AgentOptions.SAMPLE_RATE, 0);
+        if (sampleRate > 0) {
+            CallSiteSampler.start(
+                    sampleRate,
+                    Paths.get(options.get(AgentOptions.SAMPLING_REPORT, "guava-compatibility-agent-call-sites.txt")));
         }
+        boolean recordInvocations = options.getBoolean(AgentOptions.METRICS) || sampleRate > 0;
+        boolean fuseTransforms = options.getBoolean(AgentOptions.FUSE_TRANSFORMS);
+        // Nothing is loaded here: shims are applied as guava classes are defined, in loaders which can see modern
+        // guava.
         AgentBuilder agentBuilder = new AgentBuilder.Default()
-                .type(ElementMatchers.named(OBJECTS))
-                .transform((in, _type, _classLoader, _module, _protection) -> {
-                    DynamicType.Builder<?> builder = in;
-                    // Objects.firstNonNull(first,second) -> MoreObjects.firstNonNull(first,second)
-                    TypeDescription.Generic typeVariable =
-                            TypeDescription.Generic.Builder.typeVariable("T").build();
-                    builder = builder.defineMethod("firstNonNull", typeVariable, Modifier.PUBLIC | Modifier.STATIC)
-                            .withParameter(typeVariable, "first")
-                            .withParameter(typeVariable, "second")
-                            .typeVariable(typeVariable.getSymbol())
-                            .intercept(MethodDelegation.to(moreObjectsClass));
-                    // TODO(ckozak): Handle the following:
-                    // Objects.toStringHelper(Object) -> MoreObjects.toStringHelper(Object)
-                    // Objects.toStringHelper(Class) -> MoreObjects.toStringHelper(Class)
-                    // Objects.toStringHelper(String) -> MoreObjects.toStringHelper(String)
-                    return builder;
-                });
-
-        agentBuilder = agentBuilder
-                .type(ElementMatchers.named(FUTURES))
-                .transform((builder, _type, _classLoader, _module, _protection) -> {
-                    TypeDescription.Generic typeVarI =
-                            TypeDescription.Generic.Builder.typeVariable("I").build();
-                    TypeDescription.Generic typeVarO =
-                            TypeDescription.Generic.Builder.typeVariable("O").build();
-                    TypeDescription.Generic typeVarV =
-                            TypeDescription.Generic.Builder.typeVariable("V").build();
-                    TypeDescription.Latent listenableFuture =
-                            new TypeDescription.Latent(
-                                    LISTENABLE_FUTURE,
-                                    Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT | Opcodes.ACC_INTERFACE,
-                                    null,
-                                    TypeDescription.Generic.Builder.of(Future.class)
-                                            .build()) {
-                                @Override
-                                public TypeDescription getDeclaringType() {
-                                    return null;
-                                }
-
-                                @Override
-                                public AnnotationList getDeclaredAnnotations() {
-                                    return new AnnotationList.Empty();
-                                }
-
-                                @Override
-                                public TypeList.Generic getTypeVariables() {
-                                    return new TypeList.Generic.Explicit(typeVarV);
-                                }
-                            };
-                    TypeDescription.Latent guavaFunction =
-                            new TypeDescription.Latent(
-                                    GUAVA_FUNCTION,
-                                    Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT | Opcodes.ACC_INTERFACE,
-                                    null,
-                                    TypeDescription.Generic.Builder.of(java.util.function.Function.class)
-                                            .build()) {
-                                @Override
-                                public TypeDescription getDeclaringType() {
-                                    return null;
-                                }
-
-                                @Override
-                                public AnnotationList getDeclaredAnnotations() {
-                                    return new AnnotationList.Empty();
-                                }
-
-                                @Override
-                                public TypeList.Generic getTypeVariables() {
-                                    return new TypeList.Generic.Explicit(
-                                            TypeDescription.Generic.Builder.typeVariable("F")
-                                                    .build(),
-                                            TypeDescription.Generic.Builder.typeVariable("T")
-                                                    .build());
-                                }
-                            };
-                    TypeDescription.Latent asyncFunction =
-                            new TypeDescription.Latent(
-                                    ASYNC_FUNCTION,
-                                    Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT | Opcodes.ACC_INTERFACE,
-                                    null) {
-                                @Override
-                                public TypeDescription getDeclaringType() {
-                                    return null;
-                                }
-
-                                @Override
-                                public AnnotationList getDeclaredAnnotations() {
-                                    return new AnnotationList.Empty();
-                                }
-
-                                @Override
-                                public TypeList.Generic getTypeVariables() {
-                                    return new TypeList.Generic.Explicit(typeVarI, typeVarO);
-                                }
-                            };
-
-                    TypeDescription.Latent futureCallback =
-                            new TypeDescription.Latent(
-                                    FUTURE_CALLBACK,
-                                    Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT | Opcodes.ACC_INTERFACE,
-                                    null) {
-                                @Override
-                                public TypeDescription getDeclaringType() {
-                                    return null;
-                                }
-
-                                @Override
-                                public AnnotationList getDeclaredAnnotations() {
-                                    return new AnnotationList.Empty();
-                                }
-
-                                @Override
-                                public TypeList.Generic getTypeVariables() {
-                                    return new TypeList.Generic.Explicit(typeVarV);
-                                }
-                            };
-
-                    TypeDescription.Latent futureFallback =
-                            new TypeDescription.Latent(
-                                    FUTURE_FALLBACK,
-                                    Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT | Opcodes.ACC_INTERFACE,
-                                    null) {
-                                @Override
-                                public TypeDescription getDeclaringType() {
-                                    return null;
-                                }
-
-                                @Override
-                                public AnnotationList getDeclaredAnnotations() {
-                                    return new AnnotationList.Empty();
-                                }
-
-                                @Override
-                                public TypeList.Generic getTypeVariables() {
-                                    return new TypeList.Generic.Explicit(typeVarV);
-                                }
-                            };
-
-                    TypeDescription.Latent moreExecutors =
-                            new TypeDescription.Latent(
-                                    MORE_EXECUTORS, Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, null) {
-                                @Override
-                                public TypeDescription getDeclaringType() {
-                                    return null;
-                                }
-
-                                @Override
-                                public AnnotationList getDeclaredAnnotations() {
-                                    return new AnnotationList.Empty();
-                                }
-
-                                @Override
-                                public TypeList.Generic getTypeVariables() {
-                                    return new TypeList.Generic.Empty();
-                                }
-                            };
-
-                    MethodCall.WithoutSpecifiedTarget invokeDirectExecutor =
-                            MethodCall.invoke(new MethodDescription.Latent(
-                                    moreExecutors,
-                                    new MethodDescription.Token(
-                                            "directExecutor",
-                                            Modifier.PUBLIC | Modifier.STATIC,
-                                            TypeDescription.Generic.OfNonGenericType.ForLoadedType.of(
-                                                    Executor.class))));
-                    Generic returnType = TypeDescription.Generic.Builder.parameterizedType(listenableFuture, typeVarO)
-                            .build();
-                    return builder
-                            // transform(future, function) -> transform(future, function, executor)
-                            .defineMethod("transform", returnType, Modifier.PUBLIC | Modifier.STATIC)
-                            .withParameter(
-                                    TypeDescription.Generic.Builder.parameterizedType(listenableFuture, typeVarI)
-                                            .build(),
-                                    "input")
-                            .withParameter(
-                                    TypeDescription.Generic.Builder.parameterizedType(
-                                                    guavaFunction, Arrays.asList(typeVarI, typeVarO))
-                                            .build(),
-                                    "function")
-                            .typeVariable(typeVarI.getSymbol())
-                            .typeVariable(typeVarO.getSymbol())
-                            .intercept(MethodCall.invoke(ElementMatchers.named("transform")
-                                            .and(ElementMatchers.isPublic())
-                                            .and(ElementMatchers.isStatic())
-                                            .and(ElementMatchers.takesArguments(
-                                                    listenableFuture,
-                                                    guavaFunction,
-                                                    TypeDescription.ForLoadedType.of(Executor.class))))
-                                    .with(
-                                            new MethodCall.ArgumentLoader.ForMethodParameter.Factory(0),
-                                            new MethodCall.ArgumentLoader.ForMethodParameter.Factory(1))
-                                    .withMethodCall(invokeDirectExecutor))
-                            // transform(future, asyncfun) -> transformAsync(future, asyncfun, executor)
-                            .defineMethod("transform", returnType, Modifier.PUBLIC | Modifier.STATIC)
-                            .withParameter(
-                                    TypeDescription.Generic.Builder.parameterizedType(listenableFuture, typeVarI)
-                                            .build(),
-                                    "input")
-                            .withParameter(
-                                    TypeDescription.Generic.Builder.parameterizedType(
-                                                    asyncFunction, Arrays.asList(typeVarI, typeVarO))
-                                            .build(),
-                                    "function")
-                            .typeVariable(typeVarI.getSymbol())
-                            .typeVariable(typeVarO.getSymbol())
-                            .intercept(MethodCall.invoke(ElementMatchers.named("transformAsync")
-                                            .and(ElementMatchers.isPublic())
-                                            .and(ElementMatchers.isStatic())
-                                            .and(ElementMatchers.takesArguments(
-                                                    listenableFuture,
-                                                    asyncFunction,
-                                                    TypeDescription.ForLoadedType.of(Executor.class))))
-                                    .with(
-                                            new MethodCall.ArgumentLoader.ForMethodParameter.Factory(0),
-                                            new MethodCall.ArgumentLoader.ForMethodParameter.Factory(1))
-                                    .withMethodCall(invokeDirectExecutor))
-                            // transform(future, asyncfun, executor) -> transformAsync(future, asyncfun, executor)
-                            .defineMethod("transform", returnType, Modifier.PUBLIC | Modifier.STATIC)
-                            .withParameter(
-                                    TypeDescription.Generic.Builder.parameterizedType(listenableFuture, typeVarI)
-                                            .build(),
-                                    "input")
-                            .withParameter(
-                                    TypeDescription.Generic.Builder.parameterizedType(
-                                                    asyncFunction, Arrays.asList(typeVarI, typeVarO))
-                                            .build(),
-                                    "function")
-                            .withParameter(Executor.class, "executor")
-                            .typeVariable(typeVarI.getSymbol())
-                            .typeVariable(typeVarO.getSymbol())
-                            .intercept(MethodCall.invoke(ElementMatchers.named("transformAsync")
-                                            .and(ElementMatchers.isPublic())
-                                            .and(ElementMatchers.isStatic())
-                                            .and(ElementMatchers.takesArguments(
-                                                    listenableFuture,
-                                                    asyncFunction,
-                                                    TypeDescription.ForLoadedType.of(Executor.class))))
-                                    .withAllArguments())
-                            // addCallback(future, cb) -> addCallback(future, cb, executor)
-                            .defineMethod(
-                                    "addCallback",
-                                    TypeDescription.ForLoadedType.of(void.class),
-                                    Modifier.PUBLIC | Modifier.STATIC)
-                            .withParameter(
-                                    TypeDescription.Generic.Builder.parameterizedType(listenableFuture, typeVarV)
-                                            .build(),
-                                    "input")
-                            .withParameter(
-                                    TypeDescription.Generic.Builder.parameterizedType(futureCallback, typeVarV)
-                                            .build(),
-                                    "function")
-                            .typeVariable(typeVarV.getSymbol())
-                            .intercept(MethodCall.invoke(ElementMatchers.named("addCallback")
-                                            .and(ElementMatchers.isPublic())
-                                            .and(ElementMatchers.isStatic())
-                                            .and(ElementMatchers.takesArguments(
-                                                    listenableFuture,
-                                                    futureCallback,
-                                                    TypeDescription.ForLoadedType.of(Executor.class))))
-                                    .with(
-                                            new MethodCall.ArgumentLoader.ForMethodParameter.Factory(0),
-                                            new MethodCall.ArgumentLoader.ForMethodParameter.Factory(1))
-                                    .withMethodCall(invokeDirectExecutor))
-                            // withFallback(future, fb) -> catchingAsync
-                            .defineMethod(
-                                    "withFallback",
-                                    TypeDescription.Generic.Builder.parameterizedType(listenableFuture, typeVarV)
-                                            .build(),
-                                    Modifier.PUBLIC | Modifier.STATIC)
-                            .withParameter(
-                                    TypeDescription.Generic.Builder.parameterizedType(listenableFuture, typeVarV)
-                                            .build(),
-                                    "input")
-                            .withParameter(
-                                    TypeDescription.Generic.Builder.parameterizedType(futureFallback, typeVarV)
-                                            .build(),
-                                    "fallback")
-                            .typeVariable(typeVarV.getSymbol())
-                            .intercept(MethodDelegation.to(FallbackAdapterHandler.class))
-                            // withFallback(future, fb, executor) -> catchingAsync
-                            .defineMethod(
-                                    "withFallback",
-                                    TypeDescription.Generic.Builder.parameterizedType(listenableFuture, typeVarV)
-                                            .build(),
-                                    Modifier.PUBLIC | Modifier.STATIC)
-                            .withParameter(
-                                    TypeDescription.Generic.Builder.parameterizedType(listenableFuture, typeVarV)
-                                            .build(),
-                                    "input")
-                            .withParameter(
-                                    TypeDescription.Generic.Builder.parameterizedType(futureFallback, typeVarV)
-                                            .build(),
-                                    "fallback")
-                            .withParameter(
-                                    TypeDescription.Generic.OfNonGenericType.ForLoadedType.of(Executor.class),
-                                    "executor")
-                            .typeVariable(typeVarV.getSymbol())
-                            .intercept(MethodDelegation.to(FallbackAdapterHandler.class));
-                });
-        // MoreExecutors.sameThreadExecutor() -> MoreExecutors.newDirectExecutorService()
+                // Each class loader may define its own guava, see ClassLoaderTypePoolCache
+                .with(new ClassLoaderTypePoolCache(options.getInt(
+                        AgentOptions.TYPE_POOL_CACHE_SIZE, ClassLoaderTypePoolCache.DEFAULT_MAXIMUM_SIZE)))
+                .with(AgentBuilder.LocationStrategy.ForClassLoader.WEAK)
+                // Replaces the default ignore matcher: nothing outside of guava is ever rewritten, and a name
+                // check doesn't require the class file to be parsed.
+                .ignore(ElementMatchers.not(ElementMatchers.nameStartsWith(GUAVA_PACKAGE)));
+        ShimSelector shims = ShimSelector.from(options);
+        Map<String, AgentBuilder.Transformer> transformers =
+                GuavaShims.transformers(recordInvocations, fuseTransforms, shims);
+        // A single matcher and a lookup by name, rather than a matcher for each shimmed type, so that the cost of
+        // matching a guava class doesn't grow with the number of shimmed types.
         agentBuilder = agentBuilder
-                .type(ElementMatchers.named(MORE_EXECUTORS))
-                .transform((builder, _type, _classLoader, _module, _protection) -> {
-                    TypeDescription.Latent listeningExecutor =
-                            new TypeDescription.Latent(
-                                    LISTENING_EXECUTOR,
-                                    Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT | Opcodes.ACC_INTERFACE,
-                                    null,
-                                    TypeDescription.Generic.Builder.of(ExecutorService.class)
-                                            .build()) {
-                                @Override
-                                public TypeDescription getDeclaringType() {
-                                    return null;
-                                }
-
-                                @Override
-                                public AnnotationList getDeclaredAnnotations() {
-                                    return new AnnotationList.Empty();
-                                }
-
-                                @Override
-                                public TypeList.Generic getTypeVariables() {
-                                    return new TypeList.Generic.Empty();
-                                }
-                            };
-                    return builder.defineMethod(
-                                    "sameThreadExecutor", listeningExecutor, Modifier.PUBLIC | Modifier.STATIC)
-                            .intercept(MethodCall.invoke(ElementMatchers.named("newDirectExecutorService")
-                                    .and(ElementMatchers.isStatic())
-                                    .and(ElementMatchers.isPublic())
-                                    .and(ElementMatchers.takesNoArguments())));
-                });
-
-        // TODO(ckozak): Iterators.emptyIterator() -> public
-        // Could use a value resulting from ImmutableList.<T>of().listIterator()
+                .type(
+                        ElementMatchers.namedOneOf(transformers.keySet().toArray(new String[0])),
+                        ModernGuavaDetection.MATCHER)
+                .transform((builder, type, classLoader, module, protectionDomain) -> transformers
+                        .get(type.getName())
+                        .transform(builder, type, classLoader, module, protectionDomain));
+
+        Set<String> transformedClassNames = internalNames(transformers.keySet());
+        ClassFileTransformer byteBuddy = agentBuilder.makeRaw();
+        ClassFileTransformer transformer = byteBuddy;
+        String cacheDir = options.get(AgentOptions.CACHE_DIR);
+        if (cacheDir != null) {
+            transformer = new CachingClassFileTransformer(
+                    transformer, Paths.get(cacheDir), transformedClassNames, args);
+        }
+        HelperInjector helpers = options.getBoolean(AgentOptions.INJECT_HELPERS, true) ? new HelperInjector() : null;
+        if (helpers != null) {
+            // Outside of the cache, which bypasses the delegate for cached classes. Helpers loaded from the agent jar
+            // link against the guava of the agent's class loader, so other loaders' guava needs its own.
+            Map<String, List<String>> helperTypes = new HashMap<>();
+            for (String shimmedType : transformers.keySet()) {
+                helperTypes.put(
+                        shimmedType.replace('.', '/'), GuavaShims.helperTypes(shimmedType, fuseTransforms));
+            }
+            transformer = new HelperInjectingClassFileTransformer(transformer, helperTypes, helpers);
+        }
+        // Installed through a prefilter so that every class which isn't shimmed, including the rest of guava, is
+        // rejected by its internal name before ByteBuddy allocates a type pool or class file locator for it.
+        instrumentation.addTransformer(new PrefilteringClassFileTransformer(
+                transformer,
+                new ClassNameFilter(transformedClassNames),
+                options.getBoolean(AgentOptions.METRICS) ? byteBuddy : null));
+
+        if (options.getBoolean(AgentOptions.PREWARM)) {
+            // Started once the shims are installed, the application's main runs alongside it
+            ShimPrewarming.start(!recordInvocations, shims);
+        }
 
-        agentBuilder.installOn(instrumentation);
+        boolean redirectCallSites = options.getBoolean(AgentOptions.REDIRECT_CALL_SITES);
+        RerouteSelector rerouting = RerouteSelector.from(options);
+        if (!rerouting.isEmpty()) {
+            CallbackRerouting.configure(options.get(AgentOptions.REROUTE_EXECUTOR, CallbackRerouting.VIRTUAL));
+        }
+        if (redirectCallSites || !rerouting.isEmpty()) {
+            String scopeFile = options.get(AgentOptions.CALL_SITE_SCOPE);
+            CallSiteScope scope = scopeFile == null ? CallSiteScope.ALL : CallSiteScope.load(Paths.get(scopeFile));
+            // The shims above are still required for reflective callers and classes loaded before the agent.
+            instrumentation.addTransformer(new CallSiteRedirectingTransformer(
+                    recordInvocations, fuseTransforms, redirectCallSites, rerouting, scope, helpers));
+        }
     }
 
-    private static Class<?> loadNullable(String className) {
-        try {
-            return Class.forName(className);
-        } catch (ClassNotFoundException ignored) {
-            return null;
+    private static Set<String> internalNames(Set<String> classNames) {
+        Set<String> internalNames = new HashSet<>();
+        for (String className : classNames) {
+            internalNames.add(className.replace('.', '/'));
         }
+        return internalNames;
     }
 
     private Agent() {}
@@ -0,0 +1,177 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.agent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Options passed to the agent as a comma separated list of {@code key=value} pairs, for example
+ * {@code -javaagent:guava-compatibility-agent.jar=redirectCallSites=true}. A key without a value is equivalent to
+ * {@code key=true}, and keys may be repeated to provide multiple values.
+ */
+final class AgentOptions {
+
+    /** Rewrites legacy call sites to invoke the modern guava APIs directly. */
+    static final String REDIRECT_CALL_SITES = "redirectCallSites";
+
+    /** Counts invocations of legacy apis, see {@link LegacyApiInvocations}. */
+    static final String METRICS = "metrics";
+
+    /** Attributes one in this many legacy api invocations to their caller, see {@link CallSiteSampler}. */
+    static final String SAMPLE_RATE = "sampleRate";
+
+    /** File to which sampled call sites are written when the jvm exits. */
+    static final String SAMPLING_REPORT = "samplingReport";
+
+    /** Directory in which transformed guava classes are saved, and reused by later jvms. */
+    static final String CACHE_DIR = "cacheDir";
+
+    /** Links chained direct executor transforms and callbacks without recursion, see {@link FusedTransforms}. */
+    static final String FUSE_TRANSFORMS = "fuseTransforms";
+
+    /**
+     * Package or class whose direct executor callbacks run on the {@link #REROUTE_EXECUTOR} instead, may be repeated.
+     * See {@link RerouteSelector}.
+     */
+    static final String REROUTE = "reroute";
+
+    /** Legacy method whose callbacks are rerouted, may be repeated. Defaults to all of them. */
+    static final String REROUTE_APIS = "rerouteApis";
+
+    /** Executor to which callbacks are rerouted, see {@link CallbackRerouting}. */
+    static final String REROUTE_EXECUTOR = "rerouteExecutor";
+
+    /**
+     * File listing the jars and directories whose call sites are rewritten, as written by {@link ClasspathScanner}.
+     * Defaults to every class.
+     */
+    static final String CALL_SITE_SCOPE = "callSiteScope";
+
+    /**
+     * Defines the helper types referenced by shims in each class loader which defines shimmed guava, see
+     * {@link HelperInjectingClassFileTransformer}. Defaults to true; when false, helpers are loaded by the agent's
+     * class loader and only link in class loaders which share its guava.
+     */
+    static final String INJECT_HELPERS = "injectHelpers";
+
+    /** Number of type descriptions cached for each class loader, see {@link ClassLoaderTypePoolCache}. */
+    static final String TYPE_POOL_CACHE_SIZE = "typePoolCacheSize";
+
+    /** Loads the shimmed guava classes and compiles their shims in the background, see {@link ShimPrewarming}. */
+    static final String PREWARM = "prewarm";
+
+    /** Shim to apply, such as {@code Futures.withFallback}, may be repeated. Defaults to all of them. */
+    static final String SHIMS = "shims";
+
+    /** Shim not to apply, may be repeated. See {@link ShimSelector}. */
+    static final String DISABLE_SHIMS = "disableShims";
+
+    private static final Set<String> KNOWN_OPTIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            REDIRECT_CALL_SITES,
+            METRICS,
+            SAMPLE_RATE,
+            SAMPLING_REPORT,
+            CACHE_DIR,
+            FUSE_TRANSFORMS,
+            REROUTE,
+            REROUTE_APIS,
+            REROUTE_EXECUTOR,
+            CALL_SITE_SCOPE,
+            INJECT_HELPERS,
+            TYPE_POOL_CACHE_SIZE,
+            PREWARM,
+            SHIMS,
+            DISABLE_SHIMS)));
+
+    private final Map<String, List<String>> values;
+
+    private AgentOptions(Map<String, List<String>> values) {
+        this.values = values;
+    }
+
+    static AgentOptions parse(String args) {
+        Map<String, List<String>> values = new HashMap<>();
+        if (args != null) {
+            int start = 0;
+            while (start < args.length()) {
+                int end = args.indexOf(',', start);
+                if (end < 0) {
+                    end = args.length();
+                }
+                String option = args.substring(start, end).trim();
+                if (!option.isEmpty()) {
+                    int separator = option.indexOf('=');
+                    String key = separator < 0 ? option : option.substring(0, separator).trim();
+                    String value = separator < 0 ? "true" : option.substring(separator + 1).trim();
+                    if (!KNOWN_OPTIONS.contains(key)) {
+                        throw new IllegalArgumentException("Unknown guava-compatibility-agent option '" + key
+                                + "', expected one of " + KNOWN_OPTIONS);
+                    }
+                    values.computeIfAbsent(key, _key -> new ArrayList<>()).add(value);
+                }
+                start = end + 1;
+            }
+        }
+        return new AgentOptions(values);
+    }
+
+    /** Returns the last value given for the key, or null if it wasn't provided. */
+    String get(String key) {
+        List<String> value = values.get(key);
+        return value == null ? null : value.get(value.size() - 1);
+    }
+
+    /** Returns every value given for the key, in order. */
+    List<String> getAll(String key) {
+        List<String> value = values.get(key);
+        return value == null ? Collections.emptyList() : Collections.unmodifiableList(value);
+    }
+
+    String get(String key, String defaultValue) {
+        String value = get(key);
+        return value == null ? defaultValue : value;
+    }
+
+    int getInt(String key, int defaultValue) {
+        String value = get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(
+                    "guava-compatibility-agent option '" + key + "' must be an integer, was '" + value + "'", e);
+        }
+    }
+
+    boolean getBoolean(String key) {
+        return Boolean.parseBoolean(get(key));
+    }
+
+    boolean getBoolean(String key, boolean defaultValue) {
+        String value = get(key);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
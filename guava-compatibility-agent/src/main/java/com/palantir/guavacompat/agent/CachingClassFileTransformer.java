@@ -0,0 +1,145 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.agent;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.IllegalClassFormatException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.ProtectionDomain;
+import java.util.Set;
+
+/**
+ * Saves the output of the delegate {@link ClassFileTransformer} to a directory, and reuses it when a later jvm loads
+ * an identical class. Entries are keyed by a digest of the original class file, the agent jar and the agent options,
+ * so upgrading guava or the agent results in new entries rather than stale ones.
+ */
+final class CachingClassFileTransformer implements ClassFileTransformer {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final ClassFileTransformer delegate;
+    private final Path directory;
+    private final Set<String> transformedClassNames;
+    private final byte[] fingerprint;
+
+    /**
+     * Creates a transformer which caches the given classes.
+     *
+     * @param transformedClassNames internal names of the classes the delegate transforms, others are passed
+     *     through without hashing.
+     * @param agentArgs options the agent was started with, which may change the output of the delegate.
+     */
+    CachingClassFileTransformer(
+            ClassFileTransformer delegate, Path directory, Set<String> transformedClassNames, String agentArgs) {
+        this.delegate = delegate;
+        this.directory = directory;
+        this.transformedClassNames = transformedClassNames;
+        this.fingerprint = agentFingerprint(agentArgs);
+    }
+
+    @Override
+    public byte[] transform(
+            ClassLoader loader,
+            String className,
+            Class<?> classBeingRedefined,
+            ProtectionDomain protectionDomain,
+            byte[] classfileBuffer)
+            throws IllegalClassFormatException {
+        if (classBeingRedefined != null || className == null || !transformedClassNames.contains(className)) {
+            return delegate.transform(loader, className, classBeingRedefined, protectionDomain, classfileBuffer);
+        }
+        Path entry = directory.resolve(key(className, classfileBuffer) + ".class");
+        try {
+            return Files.readAllBytes(entry);
+        } catch (NoSuchFileException ignored) {
+            // Not yet cached
+        } catch (IOException ignored) {
+            // Fall back to transforming the class, the entry is replaced below
+        }
+        byte[] transformed =
+                delegate.transform(loader, className, classBeingRedefined, protectionDomain, classfileBuffer);
+        if (transformed != null) {
+            write(entry, transformed);
+        }
+        return transformed;
+    }
+
+    private String key(String className, byte[] classfileBuffer) {
+        MessageDigest digest = sha256();
+        digest.update(fingerprint);
+        digest.update(className.getBytes(StandardCharsets.UTF_8));
+        digest.update(classfileBuffer);
+        byte[] hash = digest.digest();
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[i * 2] = HEX[(hash[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[hash[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Writes to a temporary file which is moved into place, so that concurrently starting jvms never observe a
+     * partially written entry. Failures are ignored, the class is transformed again by the next jvm.
+     */
+    private static void write(Path entry, byte[] transformed) {
+        try {
+            Files.createDirectories(entry.getParent());
+            Path temporary = Files.createTempFile(entry.getParent(), entry.getFileName().toString(), ".tmp");
+            try {
+                Files.write(temporary, transformed);
+                Files.move(temporary, entry, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException | RuntimeException ignored) {
+            // Caching is best-effort
+        }
+    }
+
+    private static byte[] agentFingerprint(String agentArgs) {
+        StringBuilder fingerprint = new StringBuilder().append(agentArgs);
+        CodeSource codeSource = CachingClassFileTransformer.class.getProtectionDomain().getCodeSource();
+        if (codeSource != null && codeSource.getLocation() != null) {
+            try {
+                File agentJar = new File(codeSource.getLocation().toURI());
+                fingerprint.append(':').append(agentJar.length()).append(':').append(agentJar.lastModified());
+            } catch (URISyntaxException | IllegalArgumentException ignored) {
+                fingerprint.append(':').append(codeSource.getLocation());
+            }
+        }
+        return fingerprint.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required to be supported by every jvm", e);
+        }
+    }
+}
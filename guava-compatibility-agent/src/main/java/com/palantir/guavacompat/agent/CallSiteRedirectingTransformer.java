@@ -0,0 +1,318 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.agent;
+
+import com.palantir.guavacompat.agent.LegacyApi.Descriptors;
+import java.lang.instrument.ClassFileTransformer;
+import java.nio.charset.StandardCharsets;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import net.bytebuddy.jar.asm.ClassReader;
+import net.bytebuddy.jar.asm.ClassVisitor;
+import net.bytebuddy.jar.asm.ClassWriter;
+import net.bytebuddy.jar.asm.MethodVisitor;
+import net.bytebuddy.jar.asm.Opcodes;
+import net.bytebuddy.jar.asm.Type;
+import net.bytebuddy.utility.OpenedClassReader;
+
+/**
+ * Rewrites invocations of {@link LegacyApi legacy guava methods} in application classes to invoke the modern
+ * replacement directly, rather than calling through a method defined on the guava class. Arguments which the legacy
+ * overloads left implicit, for example the direct executor, are pushed onto the stack at the call site.
+ *
+ * <p>Guava's own classes are not rewritten, so reflective invocations and classes loaded before the agent still rely
+ * on the methods defined by {@link GuavaShims}.
+ *
+ * <p>Call sites selected by a {@link RerouteSelector} are rewritten even without {@code redirectCallSites}, passing
+ * the executor from {@link CallbackRerouting} where the legacy overload implied the direct executor.
+ *
+ * <p>Only classes in the {@link CallSiteScope} are rewritten, so that the classpath scan limits rewriting to the jars
+ * which call legacy apis.
+ *
+ * <p>Call sites rewritten to helper types provided by this agent bypass the shimmed guava class, whose definition
+ * would otherwise inject the helpers, so they are injected for the rewritten class instead, in the class loader which
+ * defines its guava.
+ */
+final class CallSiteRedirectingTransformer implements ClassFileTransformer {
+
+    private static final String GUAVA_PACKAGE = "com/google/common/";
+    private static final String AGENT_PACKAGE = "com/palantir/guavacompat/agent/";
+    private static final byte[] GUAVA_PACKAGE_BYTES = GUAVA_PACKAGE.getBytes(StandardCharsets.UTF_8);
+    private static final String LEGACY_API_INVOCATIONS = "com/palantir/guavacompat/agent/LegacyApiInvocations";
+    private static final String CALLBACK_REROUTING = "com/palantir/guavacompat/agent/CallbackRerouting";
+
+    private final boolean recordInvocations;
+    private final boolean fuseTransforms;
+    private final boolean redirectCallSites;
+    private final RerouteSelector rerouting;
+    private final CallSiteScope scope;
+    private final HelperInjector helpers;
+
+    /**
+     * @param redirectCallSites whether every legacy call site is redirected, rather than only those selected by
+     *     {@code rerouting}
+     * @param helpers injects the helpers which rewritten call sites refer to, or null if they are loaded by the
+     *     agent's class loader
+     */
+    CallSiteRedirectingTransformer(
+            boolean recordInvocations,
+            boolean fuseTransforms,
+            boolean redirectCallSites,
+            RerouteSelector rerouting,
+            CallSiteScope scope,
+            HelperInjector helpers) {
+        this.recordInvocations = recordInvocations;
+        this.fuseTransforms = fuseTransforms;
+        this.redirectCallSites = redirectCallSites;
+        this.rerouting = rerouting;
+        this.scope = scope;
+        this.helpers = helpers;
+    }
+
+    @Override
+    public byte[] transform(
+            ClassLoader loader,
+            String className,
+            Class<?> classBeingRedefined,
+            ProtectionDomain protectionDomain,
+            byte[] classfileBuffer) {
+        // className is null for hidden and anonymous classes. Redefinition may not change the constant pool in
+        // ways the jvm supports, and the class was rewritten when it was first loaded in any case.
+        if (className == null
+                || classBeingRedefined != null
+                || className.startsWith(GUAVA_PACKAGE)
+                || className.startsWith(AGENT_PACKAGE)
+                || !scope.includes(protectionDomain)) {
+            return null;
+        }
+        boolean reroutedCaller = rerouting.selects(className);
+        if ((!redirectCallSites && !reroutedCaller) || !contains(classfileBuffer, GUAVA_PACKAGE_BYTES)) {
+            return null;
+        }
+        ClassReader reader = OpenedClassReader.of(classfileBuffer);
+        ClassWriter writer = new ClassWriter(reader, ClassWriter.COMPUTE_MAXS);
+        RedirectingClassVisitor visitor = new RedirectingClassVisitor(writer, reroutedCaller);
+        reader.accept(visitor, 0);
+        // Detection is deferred until a legacy call site is found, which is rare in comparison to classes which
+        // reference guava. Loaders with legacy guava still provide the legacy methods.
+        if (!visitor.redirected || !ModernGuavaDetection.isPresent(loader)) {
+            return null;
+        }
+        if (helpers != null && !visitor.helperTypes.isEmpty()) {
+            helpers.injectForCaller(loader, new ArrayList<>(visitor.helperTypes));
+        }
+        return writer.toByteArray();
+    }
+
+    /**
+     * Every class which references guava contains its package name in the constant pool, which is much cheaper to
+     * find than to parse the class.
+     */
+    private static boolean contains(byte[] haystack, byte[] needle) {
+        byte first = needle[0];
+        int last = haystack.length - needle.length;
+        for (int i = 0; i <= last; i++) {
+            if (haystack[i] == first && regionMatches(haystack, i, needle)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean regionMatches(byte[] haystack, int offset, byte[] needle) {
+        for (int i = 1; i < needle.length; i++) {
+            if (haystack[offset + i] != needle[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private final class RedirectingClassVisitor extends ClassVisitor {
+
+        private final boolean reroutedCaller;
+        private boolean supportsClassConstants;
+        private boolean redirected;
+
+        /** Helpers referenced by the rewritten call sites, with supertypes before their subtypes. */
+        private final Set<String> helperTypes = new LinkedHashSet<>();
+
+        RedirectingClassVisitor(ClassVisitor delegate, boolean reroutedCaller) {
+            super(OpenedClassReader.ASM_API, delegate);
+            this.reroutedCaller = reroutedCaller;
+        }
+
+        @Override
+        public void visit(
+                int version, int access, String name, String signature, String superName, String[] interfaces) {
+            // ldc of a class constant requires a java 5 class file
+            supportsClassConstants = (version & 0xFFFF) >= Opcodes.V1_5;
+            super.visit(version, access, name, signature, superName, interfaces);
+        }
+
+        @Override
+        public MethodVisitor visitMethod(
+                int access, String name, String descriptor, String signature, String[] exceptions) {
+            return new RedirectingMethodVisitor(super.visitMethod(access, name, descriptor, signature, exceptions));
+        }
+
+        private final class RedirectingMethodVisitor extends MethodVisitor {
+
+            RedirectingMethodVisitor(MethodVisitor delegate) {
+                super(OpenedClassReader.ASM_API, delegate);
+            }
+
+            @Override
+            public void visitMethodInsn(
+                    int opcode, String owner, String name, String descriptor, boolean isInterface) {
+                LegacyApi api = opcode == Opcodes.INVOKESTATIC ? LegacyApi.find(owner, name, descriptor) : null;
+                boolean reroute = api != null && reroutedCaller && rerouting.selects(api);
+                if (api == null || (isFallback(api) && !supportsClassConstants) || !(redirectCallSites || reroute)) {
+                    super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
+                    return;
+                }
+                redirected = true;
+                if (recordInvocations) {
+                    super.visitIntInsn(Opcodes.BIPUSH, api.ordinal());
+                    invokeStatic(LEGACY_API_INVOCATIONS, "record", "(I)V");
+                }
+                redirect(api, reroute);
+            }
+
+            // When rerouted, the implicit direct executor is replaced by one from CallbackRerouting
+            private void redirect(LegacyApi api, boolean reroute) {
+                switch (api) {
+                    case OBJECTS_FIRST_NON_NULL:
+                        invokeStatic(Descriptors.MORE_OBJECTS, "firstNonNull", api.descriptor());
+                        return;
+                    case OBJECTS_TO_STRING_HELPER_OBJECT:
+                    case OBJECTS_TO_STRING_HELPER_CLASS:
+                    case OBJECTS_TO_STRING_HELPER_STRING:
+                        // The helper type is provided by this agent rather than guava, only the extra frame is avoided
+                        helperTypes.addAll(GuavaShims.helperTypes(GuavaShims.OBJECTS, fuseTransforms));
+                        invokeStatic(Descriptors.TO_STRING_HELPER_TYPE, "of", api.descriptor());
+                        return;
+                    case FUTURES_TRANSFORM:
+                        if (fuseTransforms && !reroute) {
+                            helperTypes.addAll(GuavaShims.helperTypes(GuavaShims.FUTURES, fuseTransforms));
+                            invokeStatic(Descriptors.FUSED_TRANSFORMS, "transform", api.descriptor());
+                            return;
+                        }
+                        pushExecutor(api, reroute);
+                        invokeStatic(
+                                Descriptors.FUTURES,
+                                "transform",
+                                "(" + Descriptors.LISTENABLE_FUTURE + Descriptors.FUNCTION + Descriptors.EXECUTOR
+                                        + ")" + Descriptors.LISTENABLE_FUTURE);
+                        return;
+                    case FUTURES_TRANSFORM_ASYNC:
+                        pushExecutor(api, reroute);
+                        invokeTransformAsync();
+                        return;
+                    case FUTURES_TRANSFORM_ASYNC_WITH_EXECUTOR:
+                        invokeTransformAsync();
+                        return;
+                    case FUTURES_ADD_CALLBACK:
+                        if (fuseTransforms && !reroute) {
+                            helperTypes.addAll(GuavaShims.helperTypes(GuavaShims.FUTURES, fuseTransforms));
+                            invokeStatic(Descriptors.FUSED_TRANSFORMS, "addCallback", api.descriptor());
+                            return;
+                        }
+                        pushExecutor(api, reroute);
+                        invokeStatic(
+                                Descriptors.FUTURES,
+                                "addCallback",
+                                "(" + Descriptors.LISTENABLE_FUTURE + Descriptors.FUTURE_CALLBACK
+                                        + Descriptors.EXECUTOR + ")V");
+                        return;
+                    case FUTURES_WITH_FALLBACK:
+                        // future, fallback
+                        adaptFallback();
+                        super.visitLdcInsn(Type.getObjectType("java/lang/Throwable"));
+                        super.visitInsn(Opcodes.SWAP);
+                        // future, Throwable.class, fallback
+                        pushExecutor(api, reroute);
+                        invokeCatchingAsync();
+                        return;
+                    case FUTURES_WITH_FALLBACK_WITH_EXECUTOR:
+                        // future, fallback, executor
+                        super.visitInsn(Opcodes.SWAP);
+                        adaptFallback();
+                        super.visitInsn(Opcodes.SWAP);
+                        super.visitLdcInsn(Type.getObjectType("java/lang/Throwable"));
+                        super.visitInsn(Opcodes.DUP_X2);
+                        super.visitInsn(Opcodes.POP);
+                        // future, Throwable.class, fallback, executor
+                        invokeCatchingAsync();
+                        return;
+                    case MORE_EXECUTORS_SAME_THREAD_EXECUTOR:
+                        helperTypes.addAll(GuavaShims.helperTypes(GuavaShims.MORE_EXECUTORS, fuseTransforms));
+                        invokeStatic(
+                                Descriptors.DIRECT_EXECUTOR_SERVICE,
+                                "create",
+                                "()" + Descriptors.LISTENING_EXECUTOR_SERVICE);
+                        return;
+                }
+                throw new IllegalStateException("Unknown legacy api: " + api);
+            }
+
+            private void pushExecutor(LegacyApi api, boolean reroute) {
+                if (reroute) {
+                    super.visitIntInsn(Opcodes.BIPUSH, api.ordinal());
+                    invokeStatic(CALLBACK_REROUTING, "executor", "(I)" + Descriptors.EXECUTOR);
+                } else {
+                    invokeStatic(Descriptors.MORE_EXECUTORS, "directExecutor", "()" + Descriptors.EXECUTOR);
+                }
+            }
+
+            private void invokeTransformAsync() {
+                invokeStatic(
+                        Descriptors.FUTURES,
+                        "transformAsync",
+                        "(" + Descriptors.LISTENABLE_FUTURE + Descriptors.ASYNC_FUNCTION + Descriptors.EXECUTOR + ")"
+                                + Descriptors.LISTENABLE_FUTURE);
+            }
+
+            /** Replaces the {@code FutureFallback} on top of the stack with the function given to catchingAsync. */
+            private void adaptFallback() {
+                helperTypes.addAll(GuavaShims.helperTypes(GuavaShims.FUTURES, fuseTransforms));
+                invokeStatic(
+                        Descriptors.FALLBACK_ADAPTER,
+                        "of",
+                        "(" + Descriptors.FUTURE_FALLBACK + ")" + Descriptors.ASYNC_FUNCTION);
+            }
+
+            private void invokeCatchingAsync() {
+                invokeStatic(
+                        Descriptors.FUTURES,
+                        "catchingAsync",
+                        "(" + Descriptors.LISTENABLE_FUTURE + "Ljava/lang/Class;" + Descriptors.ASYNC_FUNCTION
+                                + Descriptors.EXECUTOR + ")" + Descriptors.LISTENABLE_FUTURE);
+            }
+
+            private void invokeStatic(String owner, String name, String descriptor) {
+                super.visitMethodInsn(Opcodes.INVOKESTATIC, owner, name, descriptor, false);
+            }
+        }
+    }
+
+    private static boolean isFallback(LegacyApi api) {
+        return api == LegacyApi.FUTURES_WITH_FALLBACK || api == LegacyApi.FUTURES_WITH_FALLBACK_WITH_EXECUTOR;
+    }
+}
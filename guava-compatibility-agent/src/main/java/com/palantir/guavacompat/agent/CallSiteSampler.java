@@ -0,0 +1,121 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.agent;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Attributes a random sample of legacy api invocations to the frame which invoked them, in order to find the code
+ * worth migrating first. Stack traces are only captured for sampled invocations, others cost a random number. The
+ * ranked call sites are written to a file when the jvm exits, and are available from {@link LegacyApiInvocations}.
+ */
+final class CallSiteSampler {
+
+    /** Bounds the memory used by applications with many distinct call sites. */
+    private static final int MAX_CALL_SITES = 4096;
+
+    private static final String GUAVA_PACKAGE = "com.google.common.";
+    private static final String AGENT_PACKAGE = "com.palantir.guavacompat.agent.";
+
+    private static final ConcurrentMap<String, LongAdder> SAMPLES = new ConcurrentHashMap<>();
+    private static final LongAdder DROPPED = new LongAdder();
+    private static volatile int rate;
+
+    private CallSiteSampler() {}
+
+    /** Samples one in {@code sampleRate} invocations, and writes the results to {@code report} when the jvm exits. */
+    static void start(int sampleRate, Path report) {
+        rate = sampleRate;
+        Thread writer = new Thread(() -> write(report), "guava-compatibility-agent-call-site-report");
+        Runtime.getRuntime().addShutdownHook(writer);
+    }
+
+    static void sample(LegacyApi api) {
+        int currentRate = rate;
+        if (currentRate <= 0 || (currentRate > 1 && ThreadLocalRandom.current().nextInt(currentRate) != 0)) {
+            return;
+        }
+        String callSite = api.signature() + " <- " + caller(new Throwable().getStackTrace());
+        LongAdder samples = SAMPLES.get(callSite);
+        if (samples == null) {
+            if (SAMPLES.size() >= MAX_CALL_SITES) {
+                DROPPED.increment();
+                return;
+            }
+            samples = SAMPLES.computeIfAbsent(callSite, _callSite -> new LongAdder());
+        }
+        samples.increment();
+    }
+
+    /** Returns the number of samples of each call site, most frequently sampled first. */
+    static Map<String, Long> ranked() {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(SAMPLES.size());
+        for (Map.Entry<String, LongAdder> entry : SAMPLES.entrySet()) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue().sum()));
+        }
+        entries.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()));
+        Map<String, Long> ranked = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : entries) {
+            ranked.put(entry.getKey(), entry.getValue());
+        }
+        return ranked;
+    }
+
+    /** The first frame outside of guava and this agent, which are between the caller and this method. */
+    private static String caller(StackTraceElement[] stackTrace) {
+        for (StackTraceElement element : stackTrace) {
+            String className = element.getClassName();
+            if (!className.startsWith(GUAVA_PACKAGE) && !className.startsWith(AGENT_PACKAGE)) {
+                return element.toString();
+            }
+        }
+        return "unknown";
+    }
+
+    @SuppressWarnings("BanSystemErr")
+    private static void write(Path report) {
+        int sampleRate = rate;
+        try (Writer writer = Files.newBufferedWriter(report, StandardCharsets.UTF_8)) {
+            writer.write("# Legacy guava invocations sampled 1 in " + sampleRate
+                    + ", estimated invocations are samples multiplied by " + sampleRate + '\n');
+            if (DROPPED.sum() > 0) {
+                writer.write("# " + DROPPED.sum() + " samples dropped after " + MAX_CALL_SITES + " call sites\n");
+            }
+            writer.write("samples\testimated invocations\tcall site\n");
+            for (Map.Entry<String, Long> entry : ranked().entrySet()) {
+                writer.write(entry.getValue() + "\t" + entry.getValue() * sampleRate + '\t' + entry.getKey() + '\n');
+            }
+        } catch (IOException e) {
+            // Nothing is left to handle the failure at shutdown, and the agent has no logger of its own
+            System.err.println("guava-compatibility-agent failed to write " + report + ": " + e);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.agent;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The jars and directories whose classes are rewritten at load time, as listed by the scope file written by
+ * {@link ClasspathScanner}. Classes are matched by the location of their code source, so classes outside the scope
+ * are rejected without their class file being searched.
+ *
+ * <p>Classes loaded from a jar nested within a jar in the scope are included, as are classes without a code source,
+ * whose location is unknown.
+ */
+final class CallSiteScope {
+
+    static final CallSiteScope ALL = new CallSiteScope(null);
+
+    private static final String NESTED_SEPARATOR = "!/";
+
+    /** Locations in the format of {@link #location(Path)}, or null if every class is in scope. */
+    private final Set<String> locations;
+
+    /**
+     * Results keyed by code source url, which are few in comparison to classes. Unlike a map of protection domains,
+     * which must hold them weakly, lookups don't take a lock shared by every class being loaded.
+     */
+    private final Map<String, Boolean> included = new ConcurrentHashMap<>();
+
+    private CallSiteScope(Set<String> locations) {
+        this.locations = locations;
+    }
+
+    /** Reads a scope file, which lists one location per line and may contain {@code #} comments. */
+    static CallSiteScope load(Path scopeFile) {
+        Set<String> locations = new HashSet<>();
+        try {
+            for (String line : Files.readAllLines(scopeFile, StandardCharsets.UTF_8)) {
+                String location = line.trim();
+                if (!location.isEmpty() && !location.startsWith("#")) {
+                    locations.add(location);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException(
+                    "guava-compatibility-agent option '" + AgentOptions.CALL_SITE_SCOPE + "' could not be read", e);
+        }
+        return new CallSiteScope(locations);
+    }
+
+    boolean includes(ProtectionDomain protectionDomain) {
+        if (locations == null || protectionDomain == null) {
+            return true;
+        }
+        CodeSource codeSource = protectionDomain.getCodeSource();
+        URL url = codeSource == null ? null : codeSource.getLocation();
+        if (url == null) {
+            return true;
+        }
+        // Classes of a location share its url, so the location is only parsed once
+        String key = url.toString();
+        Boolean result = included.get(key);
+        if (result == null) {
+            result = computeIncludes(key);
+            included.put(key, result);
+        }
+        return result;
+    }
+
+    private boolean computeIncludes(String url) {
+        String location = location(url);
+        if (locations.contains(location)) {
+            return true;
+        }
+        // Classes within a jar, rather than in one of its nested jars, were attributed to the outer jar
+        int nested = location.indexOf(NESTED_SEPARATOR);
+        return nested >= 0 && locations.contains(location.substring(0, nested));
+    }
+
+    /** Returns the location of a jar or directory, which is its absolute path. */
+    static String location(Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * Converts the url of a code source to a location, for example {@code file:/app/lib/app.jar} to
+     * {@code /app/lib/app.jar}, and {@code jar:file:/app.jar!/BOOT-INF/lib/lib.jar!/} to
+     * {@code /app.jar!/BOOT-INF/lib/lib.jar}. Spring Boot 3.2 names nested jars like
+     * {@code jar:nested:/app.jar/!BOOT-INF/lib/lib.jar!/}.
+     */
+    static String location(String url) {
+        String location = url;
+        if (location.startsWith("jar:")) {
+            location = location.substring("jar:".length());
+            if (location.endsWith(NESTED_SEPARATOR)) {
+                location = location.substring(0, location.length() - NESTED_SEPARATOR.length());
+            }
+        }
+        if (location.startsWith("nested:")) {
+            location = "file:" + location.substring("nested:".length()).replace("/!", NESTED_SEPARATOR);
+        }
+        int nested = location.indexOf(NESTED_SEPARATOR);
+        String outer = nested < 0 ? location : location.substring(0, nested);
+        String entries = nested < 0 ? "" : location.substring(nested);
+        if (!outer.startsWith("file:")) {
+            return location;
+        }
+        try {
+            return location(Paths.get(new URL(outer).toURI())) + entries;
+        } catch (IOException | URISyntaxException | RuntimeException e) {
+            return location;
+        }
+    }
+}
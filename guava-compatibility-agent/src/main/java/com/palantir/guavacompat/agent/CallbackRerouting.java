@@ -0,0 +1,151 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.agent;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Provides the executor which replaces the implicit direct executor at call sites selected by
+ * {@link RerouteSelector}, so that blocking legacy callbacks don't run on the thread which completes the future, for
+ * example a netty event loop. Rerouted call sites invoke {@link #executor(int)} instead of
+ * {@code MoreExecutors.directExecutor()}, and every callback moved to the executor is counted by legacy api and
+ * exposed through {@link LegacyApiInvocations}.
+ *
+ * <p>The executor is created when the first rerouted callback is registered, and is one of:
+ *
+ * <ul>
+ *   <li>{@value #VIRTUAL}: a virtual thread per task, the default, where the jvm supports virtual threads.
+ *   <li>{@value #CACHED}: a cached pool of daemon threads, also used where virtual threads are not supported.
+ *   <li>The name of a class implementing {@link Executor} with a public no-argument constructor, loaded from the system
+ *       class loader.
+ * </ul>
+ */
+public final class CallbackRerouting {
+
+    static final String VIRTUAL = "virtual";
+    static final String CACHED = "cached";
+
+    private static final LegacyApi[] APIS = LegacyApi.values();
+
+    private static volatile String executorName = VIRTUAL;
+
+    private CallbackRerouting() {}
+
+    /** Sets the {@link AgentOptions#REROUTE_EXECUTOR}, which is only created once a callback is rerouted. */
+    static void configure(String name) {
+        executorName = name;
+    }
+
+    /** Returns the executor for callbacks of the {@link LegacyApi} with the given ordinal. */
+    public static Executor executor(int api) {
+        return Holder.FOR_API[api];
+    }
+
+    /** Returns the number of callbacks rerouted from each legacy api, omitting those which were never rerouted. */
+    static Map<String, Long> counts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        if (Holder.initialized) {
+            for (LegacyApi api : APIS) {
+                long count = Holder.FOR_API[api.ordinal()].rerouted.sum();
+                if (count > 0) {
+                    counts.put(api.signature(), count);
+                }
+            }
+        }
+        return counts;
+    }
+
+    /** Holds the executors, which are created by the first rerouted call site to execute rather than in premain. */
+    private static final class Holder {
+
+        private static final CountingExecutor[] FOR_API = new CountingExecutor[APIS.length];
+
+        private static volatile boolean initialized;
+
+        static {
+            Executor delegate = create(executorName);
+            for (int i = 0; i < FOR_API.length; i++) {
+                FOR_API[i] = new CountingExecutor(delegate);
+            }
+            initialized = true;
+            LegacyApiInvocations.ensureRegistered();
+        }
+
+        @SuppressWarnings("BanSystemErr")
+        private static Executor create(String name) {
+            if (name.equals(CACHED)) {
+                return cachedDaemonThreads();
+            }
+            if (name.equals(VIRTUAL)) {
+                return virtualThreads();
+            }
+            try {
+                return (Executor) Class.forName(name, true, ClassLoader.getSystemClassLoader())
+                        .getConstructor()
+                        .newInstance();
+            } catch (ReflectiveOperationException | ClassCastException | LinkageError e) {
+                Throwable cause = e instanceof InvocationTargetException ? e.getCause() : e;
+                System.err.println("guava-compatibility-agent could not create the " + AgentOptions.REROUTE_EXECUTOR
+                        + " '" + name + "', callbacks are not rerouted: " + cause);
+                return Runnable::run;
+            }
+        }
+
+        private static Executor virtualThreads() {
+            try {
+                return (Executor) Executors.class
+                        .getMethod("newVirtualThreadPerTaskExecutor")
+                        .invoke(null);
+            } catch (ReflectiveOperationException e) {
+                // Virtual threads were added in java 21
+                return cachedDaemonThreads();
+            }
+        }
+
+        private static ExecutorService cachedDaemonThreads() {
+            AtomicInteger threads = new AtomicInteger();
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "guava-compatibility-agent-rerouted-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private static final class CountingExecutor implements Executor {
+
+        private final Executor delegate;
+        private final LongAdder rerouted = new LongAdder();
+
+        CountingExecutor(Executor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            rerouted.increment();
+            delegate.execute(command);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.agent;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The parts of a class file which {@link ClasspathScanner} needs, read from its constant pool and member tables
+ * without loading the class: its name and supertypes, the guava members it references, and for guava's own classes
+ * the members it declares.
+ */
+final class ClassFileSummary {
+
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final String GUAVA_PACKAGE = "com/google/common/";
+
+    private static final byte UTF8 = 1;
+    private static final byte INTEGER = 3;
+    private static final byte FLOAT = 4;
+    private static final byte LONG = 5;
+    private static final byte DOUBLE = 6;
+    private static final byte CLASS = 7;
+    private static final byte STRING = 8;
+    private static final byte FIELD_REF = 9;
+    private static final byte METHOD_REF = 10;
+    private static final byte INTERFACE_METHOD_REF = 11;
+    private static final byte NAME_AND_TYPE = 12;
+    private static final byte METHOD_HANDLE = 15;
+    private static final byte METHOD_TYPE = 16;
+    private static final byte DYNAMIC = 17;
+    private static final byte INVOKE_DYNAMIC = 18;
+    private static final byte MODULE = 19;
+    private static final byte PACKAGE = 20;
+
+    /** A reference from a class to a field or method of a guava class. */
+    static final class Reference {
+        final boolean method;
+        final String owner;
+        final String name;
+        final String descriptor;
+
+        Reference(boolean method, String owner, String name, String descriptor) {
+            this.method = method;
+            this.owner = owner;
+            this.name = name;
+            this.descriptor = descriptor;
+        }
+    }
+
+    final String name;
+    final int access;
+    final String superName;
+    final List<String> interfaces;
+    final List<Reference> guavaReferences;
+
+    /** Access flags of declared members keyed by name and descriptor, only populated for guava classes. */
+    final Map<String, Integer> declaredMembers;
+
+    private ClassFileSummary(
+            String name,
+            int access,
+            String superName,
+            List<String> interfaces,
+            List<Reference> guavaReferences,
+            Map<String, Integer> declaredMembers) {
+        this.name = name;
+        this.access = access;
+        this.superName = superName;
+        this.interfaces = interfaces;
+        this.guavaReferences = guavaReferences;
+        this.declaredMembers = declaredMembers;
+    }
+
+    boolean isGuava() {
+        return name.startsWith(GUAVA_PACKAGE);
+    }
+
+    static String memberKey(String name, String descriptor) {
+        return name + descriptor;
+    }
+
+    /** Returns the summary of the class file, or null if it isn't one. */
+    static ClassFileSummary read(ByteBuffer classFile) {
+        ByteBuffer buffer = classFile.duplicate();
+        if (buffer.remaining() < 10 || buffer.getInt(0) != MAGIC) {
+            return null;
+        }
+        int count = Short.toUnsignedInt(buffer.getShort(8));
+        int[] offsets = new int[count];
+        byte[] tags = new byte[count];
+        boolean referencesGuava = false;
+        int position = 10;
+        for (int i = 1; i < count; i++) {
+            byte tag = buffer.get(position);
+            tags[i] = tag;
+            offsets[i] = position + 1;
+            switch (tag) {
+                case UTF8:
+                    int length = Short.toUnsignedInt(buffer.getShort(position + 1));
+                    referencesGuava |= startsWith(buffer, position + 3, length, GUAVA_PACKAGE);
+                    position += 3 + length;
+                    break;
+                case CLASS:
+                case STRING:
+                case METHOD_TYPE:
+                case MODULE:
+                case PACKAGE:
+                    position += 3;
+                    break;
+                case METHOD_HANDLE:
+                    position += 4;
+                    break;
+                case INTEGER:
+                case FLOAT:
+                case FIELD_REF:
+                case METHOD_REF:
+                case INTERFACE_METHOD_REF:
+                case NAME_AND_TYPE:
+                case DYNAMIC:
+                case INVOKE_DYNAMIC:
+                    position += 5;
+                    break;
+                case LONG:
+                case DOUBLE:
+                    // Eight byte constants occupy two entries
+                    position += 9;
+                    i++;
+                    break;
+                default:
+                    return null;
+            }
+        }
+        ConstantPool pool = new ConstantPool(buffer, offsets, tags);
+        int access = Short.toUnsignedInt(buffer.getShort(position));
+        String name = pool.className(Short.toUnsignedInt(buffer.getShort(position + 2)));
+        int superIndex = Short.toUnsignedInt(buffer.getShort(position + 4));
+        String superName = superIndex == 0 ? null : pool.className(superIndex);
+        int interfaceCount = Short.toUnsignedInt(buffer.getShort(position + 6));
+        position += 8;
+        List<String> interfaces = new ArrayList<>(interfaceCount);
+        for (int i = 0; i < interfaceCount; i++) {
+            interfaces.add(pool.className(Short.toUnsignedInt(buffer.getShort(position))));
+            position += 2;
+        }
+
+        List<Reference> references = Collections.emptyList();
+        Map<String, Integer> declaredMembers = Collections.emptyMap();
+        if (name.startsWith(GUAVA_PACKAGE)) {
+            declaredMembers = new HashMap<>();
+            // Fields, then methods
+            for (int table = 0; table < 2; table++) {
+                int memberCount = Short.toUnsignedInt(buffer.getShort(position));
+                position += 2;
+                for (int i = 0; i < memberCount; i++) {
+                    int memberAccess = Short.toUnsignedInt(buffer.getShort(position));
+                    String memberName = pool.utf8(Short.toUnsignedInt(buffer.getShort(position + 2)));
+                    String descriptor = pool.utf8(Short.toUnsignedInt(buffer.getShort(position + 4)));
+                    declaredMembers.put(memberKey(memberName, descriptor), memberAccess);
+                    position = skipAttributes(buffer, position + 6);
+                }
+            }
+        } else if (referencesGuava) {
+            references = new ArrayList<>();
+            for (int i = 1; i < count; i++) {
+                byte tag = tags[i];
+                if (tag == FIELD_REF || tag == METHOD_REF || tag == INTERFACE_METHOD_REF) {
+                    String owner = pool.className(Short.toUnsignedInt(buffer.getShort(offsets[i])));
+                    if (owner.startsWith(GUAVA_PACKAGE)) {
+                        int nameAndType = offsets[Short.toUnsignedInt(buffer.getShort(offsets[i] + 2))];
+                        references.add(new Reference(
+                                tag != FIELD_REF,
+                                owner,
+                                pool.utf8(Short.toUnsignedInt(buffer.getShort(nameAndType))),
+                                pool.utf8(Short.toUnsignedInt(buffer.getShort(nameAndType + 2)))));
+                    }
+                }
+            }
+        }
+        return new ClassFileSummary(name, access, superName, interfaces, references, declaredMembers);
+    }
+
+    private static int skipAttributes(ByteBuffer buffer, int position) {
+        int count = Short.toUnsignedInt(buffer.getShort(position));
+        int current = position + 2;
+        for (int i = 0; i < count; i++) {
+            current += 6 + buffer.getInt(current + 2);
+        }
+        return current;
+    }
+
+    /** Every reference to a guava member has a class constant whose name starts with the guava package. */
+    private static boolean startsWith(ByteBuffer buffer, int position, int length, String prefix) {
+        if (length < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (buffer.get(position + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class ConstantPool {
+        private final ByteBuffer buffer;
+        private final int[] offsets;
+        private final byte[] tags;
+        private final String[] strings;
+
+        ConstantPool(ByteBuffer buffer, int[] offsets, byte[] tags) {
+            this.buffer = buffer;
+            this.offsets = offsets;
+            this.tags = tags;
+            this.strings = new String[offsets.length];
+        }
+
+        String className(int index) {
+            if (tags[index] != CLASS) {
+                throw new IllegalArgumentException("Constant " + index + " is not a class");
+            }
+            return utf8(Short.toUnsignedInt(buffer.getShort(offsets[index])));
+        }
+
+        String utf8(int index) {
+            String value = strings[index];
+            if (value == null) {
+                if (tags[index] != UTF8) {
+                    throw new IllegalArgumentException("Constant " + index + " is not a string");
+                }
+                int length = Short.toUnsignedInt(buffer.getShort(offsets[index]));
+                byte[] bytes = new byte[length];
+                for (int i = 0; i < length; i++) {
+                    bytes[i] = buffer.get(offsets[index] + 2 + i);
+                }
+                // Class file strings are modified utf-8, which only differs for characters not found in names
+                value = new String(bytes, StandardCharsets.UTF_8);
+                strings[index] = value;
+            }
+            return value;
+        }
+    }
+}
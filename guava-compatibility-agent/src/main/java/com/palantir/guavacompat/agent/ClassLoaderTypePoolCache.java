@@ -0,0 +1,96 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.agent;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.pool.TypePool;
+
+/**
+ * Shares type descriptions between the guava classes defined by each class loader, rather than parsing supertypes
+ * such as {@code Object} for every class. Caches are discarded along with their class loader, which requires class
+ * files to be located through {@link AgentBuilder.LocationStrategy.ForClassLoader#WEAK weak references}: cached
+ * descriptions retain the class file locator they were parsed from.
+ *
+ * <p>Each cache holds at most {@code maximumSize} descriptions and evicts the least recently used one beyond that,
+ * so that the memory retained for a class loader doesn't grow with the number of types which happen to be resolved
+ * while its guava is transformed.
+ */
+final class ClassLoaderTypePoolCache extends AgentBuilder.PoolStrategy.WithTypePoolCache {
+
+    /** Comfortably more than the types resolved while transforming all of the shimmed guava types of one loader. */
+    static final int DEFAULT_MAXIMUM_SIZE = 256;
+
+    private final int maximumSize;
+    private final Map<ClassLoader, TypePool.CacheProvider> cacheProviders =
+            Collections.synchronizedMap(new WeakHashMap<>());
+    private final TypePool.CacheProvider bootstrap;
+
+    ClassLoaderTypePoolCache(int maximumSize) {
+        super(TypePool.Default.ReaderMode.FAST);
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Type pool caches must hold at least one description: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.bootstrap = new LeastRecentlyUsed(maximumSize);
+    }
+
+    @Override
+    protected TypePool.CacheProvider locate(ClassLoader classLoader) {
+        if (classLoader == null) {
+            return bootstrap;
+        }
+        return cacheProviders.computeIfAbsent(classLoader, _classLoader -> new LeastRecentlyUsed(maximumSize));
+    }
+
+    /**
+     * A cache which evicts the least recently used description once full. Only the shimmed guava types get past the
+     * agent's prefilter, so the lock is only ever contended by threads transforming guava in the same class loader.
+     */
+    private static final class LeastRecentlyUsed implements TypePool.CacheProvider {
+
+        private final Map<String, TypePool.Resolution> cache;
+
+        LeastRecentlyUsed(int maximumSize) {
+            this.cache = new LinkedHashMap<String, TypePool.Resolution>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, TypePool.Resolution> _eldest) {
+                    return size() > maximumSize;
+                }
+            };
+        }
+
+        @Override
+        public synchronized TypePool.Resolution find(String name) {
+            return cache.get(name);
+        }
+
+        @Override
+        public synchronized TypePool.Resolution register(String name, TypePool.Resolution resolution) {
+            TypePool.Resolution cached = cache.putIfAbsent(name, resolution);
+            return cached == null ? resolution : cached;
+        }
+
+        @Override
+        public synchronized void clear() {
+            cache.clear();
+        }
+    }
+}
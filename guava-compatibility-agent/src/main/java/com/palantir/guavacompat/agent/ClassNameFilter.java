@@ -0,0 +1,93 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.agent;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The internal names of the classes which the agent transforms, tested first against a bloom filter keyed by a
+ * fingerprint of a few characters of the name, so that most names are rejected in constant time without hashing the
+ * whole name, and only then against the exact set.
+ */
+final class ClassNameFilter {
+
+    /** Far more bits than names, so that false positives are rare even as shims are added. */
+    private static final int BITS = 1024;
+
+    private static final int MASK = BITS - 1;
+
+    private final long[] bloom = new long[BITS / Long.SIZE];
+    private final Set<String> names;
+    private final int minLength;
+    private final int maxLength;
+
+    ClassNameFilter(Set<String> names) {
+        this.names = Collections.unmodifiableSet(new HashSet<>(names));
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        for (String name : names) {
+            long hash = fingerprint(name);
+            set((int) hash);
+            set((int) (hash >>> 32));
+            min = Math.min(min, name.length());
+            max = Math.max(max, name.length());
+        }
+        this.minLength = min;
+        this.maxLength = max;
+    }
+
+    boolean contains(String name) {
+        int length = name.length();
+        if (length < minLength || length > maxLength) {
+            return false;
+        }
+        long hash = fingerprint(name);
+        return isSet((int) hash) && isSet((int) (hash >>> 32)) && names.contains(name);
+    }
+
+    /**
+     * Mixes the length and the last three characters of the name. Names within a package share their prefix, and
+     * {@link String#hashCode()} would read every character of the name, which the jvm allocates afresh for each
+     * class.
+     */
+    private static long fingerprint(String name) {
+        int length = name.length();
+        long key = length;
+        for (int i = Math.max(0, length - 3); i < length; i++) {
+            key = key * 31 + name.charAt(i);
+        }
+        // Finalizer of MurmurHash3, so that both halves are well distributed
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private void set(int hash) {
+        int bit = hash & MASK;
+        bloom[bit >>> 6] |= 1L << bit;
+    }
+
+    private boolean isSet(int hash) {
+        int bit = hash & MASK;
+        return (bloom[bit >>> 6] & (1L << bit)) != 0;
+    }
+}
@@ -0,0 +1,518 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.agent;
+
+import com.palantir.guavacompat.agent.ClassFileSummary.Reference;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import net.bytebuddy.jar.asm.Type;
+
+/**
+ * Finds the call sites of legacy guava apis on a classpath without loading any classes, in order to find the code
+ * which depends on the agent, and the code which calls guava apis that the agent doesn't reconstitute.
+ *
+ * <p>Every jar, jar nested within a jar, and directory on the classpath is scanned in parallel on the common
+ * fork-join pool. Jars are memory-mapped and only their central directory and class entries are read, and only the
+ * constant pools of classes are parsed, see {@link ClassFileSummary}. Each reference from outside guava to a guava
+ * member is reported as:
+ *
+ * <ul>
+ *   <li>{@code RECONSTITUTED}: the agent provides the member, so the caller requires the agent.
+ *   <li>{@code MISSING}: the member doesn't exist, or isn't accessible, in the guava found on the classpath and the
+ *       agent doesn't provide it, so the caller will fail with a {@link LinkageError} when it is reached.
+ * </ul>
+ *
+ * <p>The classpath must include the modern guava jar, otherwise only reconstituted call sites are reported. The
+ * optional scope file lists the locations, jars or directories, with reconstituted call sites, and may be passed to
+ * the agent as the {@code callSiteScope} option so that only those locations are rewritten by call-site redirection
+ * and rerouting.
+ *
+ * <p>Usage: {@code java -cp guava-compatibility-agent.jar com.palantir.guavacompat.agent.ClasspathScanner <classpath>
+ * [--report <file>] [--scope <file>]}
+ */
+public final class ClasspathScanner {
+
+    private static final String AGENT_PACKAGE = "com/palantir/guavacompat/agent/";
+    private static final String CLASS_FILE_EXTENSION = ".class";
+    private static final String JAR_EXTENSION = ".jar";
+    private static final int UNKNOWN_ACCESS = -1;
+    private static final String OBJECT = "java/lang/Object";
+
+    /** Members of {@link Object}, which is the root of every hierarchy but isn't on the scanned classpath. */
+    private static final Map<String, Integer> OBJECT_MEMBERS = objectMembers();
+
+    enum Status {
+        RECONSTITUTED,
+        MISSING
+    }
+
+    /** A reference from a class outside guava to a reconstituted or missing guava member. */
+    static final class CallSite {
+        final Status status;
+        final String api;
+        final String caller;
+        final String location;
+
+        CallSite(Status status, String api, String caller, String location) {
+            this.status = status;
+            this.api = api;
+            this.caller = caller;
+            this.location = location;
+        }
+    }
+
+    static final class Result {
+        final List<CallSite> callSites;
+        final long classes;
+        final long locations;
+        final boolean guavaFound;
+        final List<String> errors;
+
+        Result(List<CallSite> callSites, long classes, long locations, boolean guavaFound, List<String> errors) {
+            this.callSites = callSites;
+            this.classes = classes;
+            this.locations = locations;
+            this.guavaFound = guavaFound;
+            this.errors = errors;
+        }
+
+        /** Returns the locations with reconstituted call sites, which are rewritten at load time. */
+        Set<String> scope() {
+            Set<String> scope = new TreeSet<>();
+            for (CallSite callSite : callSites) {
+                if (callSite.status == Status.RECONSTITUTED) {
+                    scope.add(callSite.location);
+                }
+            }
+            return scope;
+        }
+    }
+
+    private static final class Caller {
+        final String location;
+        final ClassFileSummary summary;
+
+        Caller(String location, ClassFileSummary summary) {
+            this.location = location;
+            this.summary = summary;
+        }
+    }
+
+    private final ConcurrentMap<String, ClassFileSummary> guavaTypes = new ConcurrentHashMap<>();
+    private final Queue<Caller> callers = new ConcurrentLinkedQueue<>();
+    private final Queue<String> errors = new ConcurrentLinkedQueue<>();
+    private final LongAdder classes = new LongAdder();
+    private final LongAdder locations = new LongAdder();
+    private final Set<String> helperTypes = new HashSet<>();
+
+    private ClasspathScanner() {
+        for (String helper : GuavaShims.HELPER_TYPES) {
+            helperTypes.add(helper.replace('.', '/'));
+        }
+    }
+
+    @SuppressWarnings("BanSystemErr")
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 || args.length % 2 == 0) {
+            throw new IllegalArgumentException(
+                    "Usage: ClasspathScanner <classpath> [--report <file>] [--scope <file>]");
+        }
+        Path report = null;
+        Path scope = null;
+        for (int i = 1; i < args.length; i += 2) {
+            if (args[i].equals("--report")) {
+                report = Paths.get(args[i + 1]);
+            } else if (args[i].equals("--scope")) {
+                scope = Paths.get(args[i + 1]);
+            } else {
+                throw new IllegalArgumentException("Unknown ClasspathScanner argument '" + args[i] + "'");
+            }
+        }
+        long start = System.nanoTime();
+        Result result = scan(classpath(args[0]));
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        if (report == null) {
+            Writer writer = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+            writeReport(result, writer);
+            writer.flush();
+        } else {
+            try (Writer writer = newWriter(report)) {
+                writeReport(result, writer);
+            }
+        }
+        if (scope != null) {
+            try (Writer writer = newWriter(scope)) {
+                writer.write("# Locations with legacy guava call sites, written by ClasspathScanner\n");
+                for (String location : result.scope()) {
+                    writer.write(location + '\n');
+                }
+            }
+        }
+
+        for (String error : result.errors) {
+            System.err.println("Failed to scan " + error);
+        }
+        if (!result.guavaFound) {
+            System.err.println("Modern guava was not found on the classpath, missing apis are not reported");
+        }
+        Map<Status, Long> counts = result.callSites.stream()
+                .collect(Collectors.groupingBy(callSite -> callSite.status, Collectors.counting()));
+        System.err.println("Scanned " + result.classes + " classes in " + result.locations + " jars and directories in "
+                + millis + "ms: " + counts.getOrDefault(Status.RECONSTITUTED, 0L) + " reconstituted and "
+                + counts.getOrDefault(Status.MISSING, 0L) + " missing call sites in " + result.scope().size()
+                + " locations");
+    }
+
+    /** Scans the given jars and directories, which are read in parallel. */
+    static Result scan(List<Path> classpath) {
+        ClasspathScanner scanner = new ClasspathScanner();
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (Path path : classpath) {
+            tasks.add(scanner.new LocationTask(path));
+        }
+        ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+        return scanner.result();
+    }
+
+    /** Splits a classpath, expanding {@code dir/*} to the jars in the directory like the java launcher. */
+    static List<Path> classpath(String classpath) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        for (String entry : classpath.split(File.pathSeparator)) {
+            if (entry.isEmpty()) {
+                continue;
+            }
+            if (entry.endsWith("*") && (entry.length() == 1 || isSeparator(entry.charAt(entry.length() - 2)))) {
+                Path directory = Paths.get(entry.substring(0, entry.length() - 1));
+                if (Files.isDirectory(directory)) {
+                    try (DirectoryStream<Path> jars = Files.newDirectoryStream(directory)) {
+                        for (Path jar : jars) {
+                            if (isJar(jar.getFileName().toString())) {
+                                paths.add(jar);
+                            }
+                        }
+                    }
+                }
+            } else {
+                paths.add(Paths.get(entry));
+            }
+        }
+        return paths;
+    }
+
+    private static boolean isSeparator(char character) {
+        return character == '/' || character == File.separatorChar;
+    }
+
+    private static boolean isJar(String name) {
+        return name.toLowerCase(Locale.ROOT).endsWith(JAR_EXTENSION);
+    }
+
+    private static Writer newWriter(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        return Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+    }
+
+    private static void writeReport(Result result, Writer writer) throws IOException {
+        writer.write("status\tapi\tcaller\tlocation\n");
+        for (CallSite callSite : result.callSites) {
+            writer.write(callSite.status + "\t" + callSite.api + '\t' + callSite.caller + '\t' + callSite.location
+                    + '\n');
+        }
+    }
+
+    private final class LocationTask extends RecursiveAction {
+        private final Path path;
+
+        LocationTask(Path path) {
+            this.path = path;
+        }
+
+        @Override
+        protected void compute() {
+            String location = CallSiteScope.location(path);
+            try {
+                if (Files.isDirectory(path)) {
+                    scanDirectory(location);
+                } else if (Files.isRegularFile(path)) {
+                    scanJar(location);
+                }
+            } catch (IOException | RuntimeException e) {
+                errors.add(location + ": " + e);
+            }
+        }
+
+        private void scanJar(String location) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException("Jars larger than 2GB are not supported");
+                }
+                scanArchive(location, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            }
+        }
+
+        private void scanDirectory(String location) throws IOException {
+            locations.increment();
+            List<Path> classFiles;
+            try (Stream<Path> files = Files.walk(path)) {
+                classFiles = files.filter(file -> file.getFileName().toString().endsWith(CLASS_FILE_EXTENSION))
+                        .collect(Collectors.toList());
+            }
+            invokeAll(new ClassFilesTask(location, classFiles));
+        }
+    }
+
+    /** Reads class files from a directory, splitting large directories between threads. */
+    private final class ClassFilesTask extends RecursiveAction {
+        private static final int THRESHOLD = 256;
+
+        private final String location;
+        private final List<Path> classFiles;
+
+        ClassFilesTask(String location, List<Path> classFiles) {
+            this.location = location;
+            this.classFiles = classFiles;
+        }
+
+        @Override
+        protected void compute() {
+            if (classFiles.size() > THRESHOLD) {
+                int middle = classFiles.size() / 2;
+                invokeAll(
+                        new ClassFilesTask(location, classFiles.subList(0, middle)),
+                        new ClassFilesTask(location, classFiles.subList(middle, classFiles.size())));
+                return;
+            }
+            for (Path classFile : classFiles) {
+                try {
+                    // Class files are small enough that reading them is cheaper than mapping them
+                    scanClass(location, ByteBuffer.wrap(Files.readAllBytes(classFile)));
+                } catch (IOException | RuntimeException e) {
+                    errors.add(CallSiteScope.location(classFile) + ": " + e);
+                }
+            }
+        }
+    }
+
+    private final class NestedJarTask extends RecursiveAction {
+        private final String location;
+        private final ByteBuffer contents;
+
+        NestedJarTask(String location, ByteBuffer contents) {
+            this.location = location;
+            this.contents = contents;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                scanArchive(location, contents);
+            } catch (IOException | RuntimeException e) {
+                errors.add(location + ": " + e);
+            }
+        }
+    }
+
+    private void scanArchive(String location, ByteBuffer archive) throws IOException {
+        locations.increment();
+        List<NestedJarTask> nested = new ArrayList<>();
+        MappedZip.read(
+                archive,
+                name -> name.endsWith(CLASS_FILE_EXTENSION) || isJar(name),
+                (name, contents) -> {
+                    if (isJar(name)) {
+                        // Nested jars are named like the jar urls of their classes
+                        nested.add(new NestedJarTask(location + "!/" + name, contents));
+                    } else {
+                        try {
+                            scanClass(location, contents);
+                        } catch (RuntimeException e) {
+                            errors.add(location + "!/" + name + ": " + e);
+                        }
+                    }
+                });
+        ForkJoinTask.invokeAll(nested);
+    }
+
+    private void scanClass(String location, ByteBuffer contents) {
+        ClassFileSummary summary = ClassFileSummary.read(contents);
+        if (summary == null) {
+            return;
+        }
+        classes.increment();
+        if (summary.isGuava()) {
+            guavaTypes.putIfAbsent(summary.name, summary);
+        } else if (!summary.guavaReferences.isEmpty() && !summary.name.startsWith(AGENT_PACKAGE)) {
+            callers.add(new Caller(location, summary));
+        }
+    }
+
+    private Result result() {
+        List<CallSite> callSites = new ArrayList<>();
+        for (Caller caller : callers) {
+            for (Reference reference : caller.summary.guavaReferences) {
+                Status status = status(caller.summary.name, reference);
+                if (status != null) {
+                    callSites.add(new CallSite(
+                            status, describe(reference), caller.summary.name.replace('/', '.'), caller.location));
+                }
+            }
+        }
+        callSites.sort(Comparator.comparing((CallSite callSite) -> callSite.status)
+                .thenComparing(callSite -> callSite.api)
+                .thenComparing(callSite -> callSite.location)
+                .thenComparing(callSite -> callSite.caller));
+        return new Result(callSites, classes.sum(), locations.sum(), !guavaTypes.isEmpty(), new ArrayList<>(errors));
+    }
+
+    /** Returns the status of a reference, or null if it resolves in modern guava or can't be resolved. */
+    private Status status(String caller, Reference reference) {
+        if ((reference.method && LegacyApi.find(reference.owner, reference.name, reference.descriptor) != null)
+                || (!reference.method && isConstant(reference))
+                || helperTypes.contains(reference.owner)) {
+            return Status.RECONSTITUTED;
+        }
+        if (guavaTypes.isEmpty()) {
+            return null;
+        }
+        Integer access = resolve(reference.owner, ClassFileSummary.memberKey(reference.name, reference.descriptor));
+        if (access == null) {
+            return Status.MISSING;
+        }
+        if (access == UNKNOWN_ACCESS || isAccessible(access, caller, reference.owner)) {
+            return null;
+        }
+        List<String> widened = GuavaShims.NARROWED_FACTORIES.get(reference.owner.replace('/', '.'));
+        return widened != null && reference.method && widened.contains(reference.name)
+                ? Status.RECONSTITUTED
+                : Status.MISSING;
+    }
+
+    /**
+     * Returns the access flags of the member found in the type or its supertypes, {@link #UNKNOWN_ACCESS} if it isn't
+     * declared by guava but guava types inherit from types outside guava, or null if it doesn't exist.
+     */
+    private Integer resolve(String owner, String memberKey) {
+        Deque<String> pending = new ArrayDeque<>();
+        Set<String> visited = new HashSet<>();
+        pending.add(owner);
+        boolean inheritsFromOutsideGuava = false;
+        while (!pending.isEmpty()) {
+            String name = pending.poll();
+            if (!visited.add(name)) {
+                continue;
+            }
+            if (name.equals(OBJECT)) {
+                Integer access = OBJECT_MEMBERS.get(memberKey);
+                if (access != null) {
+                    return access;
+                }
+                continue;
+            }
+            ClassFileSummary type = guavaTypes.get(name);
+            if (type == null) {
+                inheritsFromOutsideGuava |= !name.startsWith("com/google/common/");
+                continue;
+            }
+            Integer access = type.declaredMembers.get(memberKey);
+            if (access != null) {
+                return access;
+            }
+            if (type.superName != null) {
+                pending.add(type.superName);
+            }
+            pending.addAll(type.interfaces);
+        }
+        return inheritsFromOutsideGuava ? UNKNOWN_ACCESS : null;
+    }
+
+    private static Map<String, Integer> objectMembers() {
+        Map<String, Integer> members = new HashMap<>();
+        for (Method method : Object.class.getDeclaredMethods()) {
+            members.put(
+                    ClassFileSummary.memberKey(method.getName(), Type.getMethodDescriptor(method)),
+                    method.getModifiers());
+        }
+        return members;
+    }
+
+    private static boolean isAccessible(int access, String caller, String owner) {
+        if ((access & (Modifier.PUBLIC | Modifier.PROTECTED)) != 0) {
+            return true;
+        }
+        return (access & Modifier.PRIVATE) == 0 && packageName(caller).equals(packageName(owner));
+    }
+
+    private static String packageName(String internalName) {
+        int separator = internalName.lastIndexOf('/');
+        return separator < 0 ? "" : internalName.substring(0, separator);
+    }
+
+    private static boolean isConstant(Reference reference) {
+        Map<String, String> constants = GuavaShims.CONSTANTS.get(reference.owner.replace('/', '.'));
+        return constants != null && constants.containsKey(reference.name);
+    }
+
+    private static String describe(Reference reference) {
+        if (reference.method) {
+            return LegacyApi.signature(reference.owner, reference.name, reference.descriptor);
+        }
+        return reference.owner.substring(reference.owner.lastIndexOf('/') + 1) + '.' + reference.name;
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * (c) Copyright 2023 Palantir Technologies Inc. All rights reserved.
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,17 +19,54 @@ package com.palantir.guavacompat.agent;
 import com.google.common.util.concurrent.AsyncFunction;
 import com.google.common.util.concurrent.FutureFallback;
 import com.google.common.util.concurrent.ListenableFuture;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 
-public final class FallbackAdapter<T> implements AsyncFunction<Throwable, T> {
+/**
+ * Adapts the fallbacks given to the legacy {@code Futures.withFallback} for {@code Futures.catchingAsync}. The
+ * {@link FutureFallback} stub is itself an {@link AsyncFunction}, so most fallbacks are passed as-is. Legacy classes
+ * which implemented both interfaces declare their own {@code apply} method, which would be called instead of
+ * {@code create}, so they are wrapped.
+ */
+public final class FallbackAdapter<V> implements AsyncFunction<Throwable, V> {
+
+    private static final ClassValue<Boolean> DECLARES_APPLY = new DeclaresApply();
 
-    private final FutureFallback<T> delegate;
+    private final FutureFallback<V> delegate;
 
-    public FallbackAdapter(FutureFallback<T> delegate) {
+    private FallbackAdapter(FutureFallback<V> delegate) {
         this.delegate = delegate;
     }
 
+    /** Returns the fallback itself, or an adapter if its class declares its own {@code apply} method. */
+    public static <V> AsyncFunction<Throwable, V> of(FutureFallback<V> fallback) {
+        return DECLARES_APPLY.get(fallback.getClass()) ? new FallbackAdapter<>(fallback) : fallback;
+    }
+
     @Override
-    public ListenableFuture<T> apply(Throwable input) throws Exception {
+    public ListenableFuture<V> apply(Throwable input) throws Exception {
         return delegate.create(input);
     }
+
+    /** Named rather than anonymous, as it is a helper type which is injected and copied along with this class. */
+    static final class DeclaresApply extends ClassValue<Boolean> {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+                    for (Method method : current.getDeclaredMethods()) {
+                        if (method.getName().equals("apply")
+                                && method.getParameterCount() == 1
+                                && !Modifier.isStatic(method.getModifiers())) {
+                            return true;
+                        }
+                    }
+                }
+                return false;
+            } catch (LinkageError e) {
+                // Methods referring to missing types can't be inspected, and wrapping is always safe
+                return true;
+            }
+        }
+    }
 }
@@ -0,0 +1,361 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.agent;
+
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.AbstractFuture;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Replaces the legacy direct executor {@code Futures.transform(future, function)} and
+ * {@code Futures.addCallback(future, callback)} when the agent is started with {@code fuseTransforms=true}.
+ *
+ * <p>Legacy pipelines chain many of these stages, and guava adds a listener to each input future which runs the next
+ * stage within the completion of the previous one, so a chain of n stages completes on a stack n stages deep. Here a
+ * transform or callback of a future returned by this class is linked directly to that future, and only the first
+ * stage of a chain adds a listener to a guava future. When a stage completes, the stages linked to it are queued on a
+ * per-thread trampoline and completed in a loop by the outermost completion on that thread, rather than recursively.
+ * Futures completed while a stage runs, by its function, callback or by a listener added to the stage, are the
+ * exception: their stages run before it returns, as they would on guava's direct executor, so that it may wait for
+ * them. Unlike guava, listeners added directly to a stage run before the stages linked to it, so they may not wait for
+ * those.
+ *
+ * <p>Results, failures and cancellation match guava: a stage fails with the failure of its input or of its
+ * function, is cancelled when its input is cancelled, and cancelling a stage cancels its input.
+ */
+public final class FusedTransforms {
+
+    private static final Logger log = Logger.getLogger(FusedTransforms.class.getName());
+
+    /** Replaces the dependents of a stage once it has completed, after which dependents are run immediately. */
+    private static final Dependent DONE = new Callback<>(null, null);
+
+    /** Replaces {@code Futures.transform(future, function)}. */
+    public static <I, O> ListenableFuture<O> transform(
+            ListenableFuture<I> input, Function<? super I, ? extends O> function) {
+        Stage<I, O> stage = new Stage<>(input, function);
+        link(input, stage);
+        return stage;
+    }
+
+    /** Replaces {@code Futures.addCallback(future, callback)}. */
+    public static <V> void addCallback(ListenableFuture<V> input, FutureCallback<? super V> callback) {
+        link(input, new Callback<>(input, callback));
+    }
+
+    private static <D extends Dependent & Runnable> void link(ListenableFuture<?> input, D dependent) {
+        if (input instanceof Stage) {
+            ((Stage<?, ?>) input).addDependent(dependent);
+        } else {
+            input.addListener(dependent, MoreExecutors.directExecutor());
+        }
+    }
+
+    /** A stage which runs once its input has completed, linked to the stages which share its input. */
+    private interface Dependent {
+
+        void fire();
+
+        Dependent next();
+
+        void next(Dependent next);
+    }
+
+    private static final class Stage<I, O> extends AbstractFuture<O> implements Dependent, Runnable {
+
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<Stage, ListenableFuture> INPUT =
+                AtomicReferenceFieldUpdater.newUpdater(Stage.class, ListenableFuture.class, "input");
+
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<Stage, Dependent> DEPENDENTS =
+                AtomicReferenceFieldUpdater.newUpdater(Stage.class, Dependent.class, "dependents");
+
+        /** Taken by whichever of completion or cancellation happens first, and null afterwards. */
+        private volatile ListenableFuture<? extends I> input;
+
+        private Function<? super I, ? extends O> function;
+
+        /** Stack of the stages linked to this one, or {@link #DONE} once this stage has completed. */
+        private volatile Dependent dependents;
+
+        /** The next stage sharing this stage's input, or queued on a trampoline after it. */
+        private Dependent next;
+
+        Stage(ListenableFuture<? extends I> input, Function<? super I, ? extends O> function) {
+            this.input = input;
+            this.function = function;
+        }
+
+        @Override
+        public void run() {
+            Trampoline.schedule(this);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void fire() {
+            ListenableFuture<? extends I> localInput = INPUT.getAndSet(this, null);
+            Function<? super I, ? extends O> localFunction = function;
+            function = null;
+            if (localInput == null) {
+                return;
+            }
+            if (localInput.isCancelled()) {
+                // Completes with the cancellation of the input, as guava's transform does. Like guava, setFuture
+                // doesn't copy whether the input was interrupted, so wasInterrupted() is false for this stage.
+                setFuture((ListenableFuture<? extends O>) localInput);
+                return;
+            }
+            I value;
+            try {
+                value = Futures.getDone(localInput);
+            } catch (ExecutionException e) {
+                setException(e.getCause());
+                return;
+            } catch (RuntimeException | Error e) {
+                setException(e);
+                return;
+            }
+            try {
+                set(localFunction.apply(value));
+            } catch (Throwable t) {
+                setException(t);
+            }
+        }
+
+        @Override
+        public Dependent next() {
+            return next;
+        }
+
+        @Override
+        public void next(Dependent value) {
+            next = value;
+        }
+
+        void addDependent(Dependent dependent) {
+            while (true) {
+                Dependent head = dependents;
+                if (head == DONE) {
+                    dependent.next(null);
+                    Trampoline.schedule(dependent);
+                    return;
+                }
+                dependent.next(head);
+                if (DEPENDENTS.compareAndSet(this, head, dependent)) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        protected void afterDone() {
+            if (isCancelled()) {
+                cancelInputs(wasInterrupted());
+            }
+            Trampoline.schedule(reverse(DEPENDENTS.getAndSet(this, DONE)), this);
+        }
+
+        /**
+         * Cancels the inputs of this stage iteratively rather than through each input's {@link #afterDone}, as the
+         * inputs of a long chain are themselves stages.
+         */
+        private void cancelInputs(boolean mayInterruptIfRunning) {
+            ListenableFuture<?> current = INPUT.getAndSet(this, null);
+            function = null;
+            while (current instanceof Stage) {
+                Stage<?, ?> stage = (Stage<?, ?>) current;
+                // Taking the input first leaves nothing for the stage's own afterDone to cancel
+                current = INPUT.getAndSet(stage, null);
+                stage.cancel(mayInterruptIfRunning);
+            }
+            if (current != null) {
+                current.cancel(mayInterruptIfRunning);
+            }
+        }
+
+        /** Reverses a stack of dependents so that they run in the order they were added, like guava listeners. */
+        private static Dependent reverse(Dependent head) {
+            Dependent reversed = null;
+            Dependent current = head;
+            while (current != null) {
+                Dependent next = current.next();
+                current.next(reversed);
+                reversed = current;
+                current = next;
+            }
+            return reversed;
+        }
+    }
+
+    private static final class Callback<V> implements Dependent, Runnable {
+
+        private ListenableFuture<V> input;
+        private FutureCallback<? super V> callback;
+        private Dependent next;
+
+        Callback(ListenableFuture<V> input, FutureCallback<? super V> callback) {
+            this.input = input;
+            this.callback = callback;
+        }
+
+        @Override
+        public void run() {
+            Trampoline.schedule(this);
+        }
+
+        @Override
+        public void fire() {
+            ListenableFuture<V> localInput = input;
+            FutureCallback<? super V> localCallback = callback;
+            input = null;
+            callback = null;
+            V value;
+            try {
+                value = Futures.getDone(localInput);
+            } catch (ExecutionException e) {
+                localCallback.onFailure(e.getCause());
+                return;
+            } catch (RuntimeException | Error e) {
+                localCallback.onFailure(e);
+                return;
+            }
+            localCallback.onSuccess(value);
+        }
+
+        @Override
+        public Dependent next() {
+            return next;
+        }
+
+        @Override
+        public void next(Dependent value) {
+            next = value;
+        }
+    }
+
+    /**
+     * Queue of the dependents which are ready to run on a thread. Only the outermost completion on a thread drains
+     * the queue, so completing a chain of stages takes a constant amount of stack.
+     *
+     * <p>Dependents scheduled while a dependent fires are drained before it returns, in a nested queue, so that a
+     * function, callback or listener which completes a future may then wait for the stages which depend on it. Only
+     * the stages linked to the stage being completed are queued, so only the nesting of user code within user code
+     * takes stack, as it would on guava's direct executor.
+     */
+    private static final class Trampoline {
+
+        private static final ThreadLocal<Trampoline> CURRENT = ThreadLocal.withInitial(Trampoline::new);
+
+        private Dependent head;
+        private Dependent tail;
+        private boolean draining;
+
+        /** The dependent which is firing, if any. */
+        private Dependent firing;
+
+        /** Runs the given list of dependents, linked through {@link Dependent#next()}, once the queue reaches them. */
+        static void schedule(Dependent dependents) {
+            schedule(dependents, null);
+        }
+
+        /** @param completed the stage to which the dependents are linked, if it has just completed */
+        static void schedule(Dependent dependents, Stage<?, ?> completed) {
+            if (dependents != null) {
+                CURRENT.get().enqueue(dependents, completed);
+            }
+        }
+
+        private void enqueue(Dependent dependents, Stage<?, ?> completed) {
+            if (firing != null && firing != completed) {
+                drainNested(dependents);
+                return;
+            }
+            if (tail == null) {
+                head = dependents;
+            } else {
+                tail.next(dependents);
+            }
+            Dependent last = dependents;
+            while (last.next() != null) {
+                last = last.next();
+            }
+            tail = last;
+            if (!draining) {
+                drain();
+            }
+        }
+
+        /** Runs the dependents, and the dependents they schedule, before returning to the dependent which is firing. */
+        private void drainNested(Dependent dependents) {
+            Dependent outerHead = head;
+            Dependent outerTail = tail;
+            Dependent outerFiring = firing;
+            head = null;
+            tail = null;
+            draining = false;
+            firing = null;
+            try {
+                enqueue(dependents, null);
+            } finally {
+                head = outerHead;
+                tail = outerTail;
+                draining = true;
+                firing = outerFiring;
+            }
+        }
+
+        private void drain() {
+            draining = true;
+            try {
+                Dependent current;
+                while ((current = head) != null) {
+                    head = current.next();
+                    if (head == null) {
+                        tail = null;
+                    }
+                    current.next(null);
+                    firing = current;
+                    try {
+                        current.fire();
+                    } catch (RuntimeException e) {
+                        // Matches guava, which logs exceptions thrown by listeners on the direct executor
+                        log.log(Level.SEVERE, "RuntimeException while completing a fused transform", e);
+                    } finally {
+                        firing = null;
+                    }
+                }
+            } finally {
+                draining = false;
+                // Only reached with queued dependents when an Error was thrown, which must not strand them
+                if (head != null) {
+                    drain();
+                }
+            }
+        }
+    }
+
+    private FusedTransforms() {}
+}
@@ -0,0 +1,616 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.agent;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.asm.ModifierAdjustment;
+import net.bytebuddy.description.annotation.AnnotationList;
+import net.bytebuddy.description.field.FieldDescription;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.description.type.TypeDescription.Generic;
+import net.bytebuddy.description.type.TypeList;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.implementation.Implementation;
+import net.bytebuddy.implementation.MethodCall;
+import net.bytebuddy.implementation.bytecode.ByteCodeAppender;
+import net.bytebuddy.implementation.bytecode.member.FieldAccess;
+import net.bytebuddy.implementation.bytecode.member.MethodInvocation;
+import net.bytebuddy.jar.asm.Opcodes;
+import net.bytebuddy.matcher.ElementMatchers;
+
+/**
+ * Definitions of the methods which reconstitute removed guava APIs. These are shared between the {@link Agent},
+ * which applies them as classes are loaded, and the {@link OfflineRewriter}, which applies them to a guava jar.
+ */
+final class GuavaShims {
+
+    static final String OBJECTS = "com.google.common.base.Objects";
+    static final String MORE_OBJECTS = "com.google.common.base.MoreObjects";
+    static final String FUTURES = "com.google.common.util.concurrent.Futures";
+    static final String MORE_EXECUTORS = "com.google.common.util.concurrent.MoreExecutors";
+    static final String ITERATORS = "com.google.common.collect.Iterators";
+    static final String CHAR_MATCHER = "com.google.common.base.CharMatcher";
+    private static final String LISTENABLE_FUTURE = "com.google.common.util.concurrent.ListenableFuture";
+    private static final String GUAVA_FUNCTION = "com.google.common.base.Function";
+    private static final String ASYNC_FUNCTION = "com.google.common.util.concurrent.AsyncFunction";
+    private static final String LISTENING_EXECUTOR = "com.google.common.util.concurrent.ListeningExecutorService";
+    private static final String FUTURE_CALLBACK = "com.google.common.util.concurrent.FutureCallback";
+    private static final String FUTURE_FALLBACK = "com.google.common.util.concurrent.FutureFallback";
+    private static final String TO_STRING_HELPER = "com.google.common.base.Objects$ToStringHelper";
+    private static final String DIRECT_EXECUTOR_SERVICE =
+            "com.palantir.guavacompat.agent.LockFreeDirectExecutorService";
+    private static final String FUSED_TRANSFORMS = "com.palantir.guavacompat.agent.FusedTransforms";
+    private static final String FALLBACK_ADAPTER = "com.palantir.guavacompat.agent.FallbackAdapter";
+    private static final Method RECORD_INVOCATION = recordInvocationMethod();
+
+    // Shims refer to these types symbolically, so their descriptions are built once rather than for each
+    // transformation, and never enter a type pool.
+    private static final Generic TYPE_VARIABLE_T = TypeDescription.Generic.Builder.typeVariable("T").build();
+    private static final Generic TYPE_VARIABLE_I = TypeDescription.Generic.Builder.typeVariable("I").build();
+    private static final Generic TYPE_VARIABLE_O = TypeDescription.Generic.Builder.typeVariable("O").build();
+    private static final Generic TYPE_VARIABLE_V = TypeDescription.Generic.Builder.typeVariable("V").build();
+    private static final TypeDescription.Latent MORE_OBJECTS_TYPE = describedClass(MORE_OBJECTS);
+    private static final TypeDescription.Latent TO_STRING_HELPER_TYPE = describedClass(TO_STRING_HELPER);
+    private static final TypeDescription.Latent MORE_EXECUTORS_TYPE = describedClass(MORE_EXECUTORS);
+    private static final TypeDescription.Latent FUSED_TRANSFORMS_TYPE = describedClass(FUSED_TRANSFORMS);
+    private static final TypeDescription.Latent FALLBACK_ADAPTER_TYPE = describedClass(FALLBACK_ADAPTER);
+    // Described rather than loaded, as loading it would load guava's AbstractListeningExecutorService while guava is
+    // being transformed
+    private static final TypeDescription.Latent DIRECT_EXECUTOR_SERVICE_TYPE = describedClass(DIRECT_EXECUTOR_SERVICE);
+    private static final TypeDescription.Latent LISTENABLE_FUTURE_TYPE = describedInterface(
+            LISTENABLE_FUTURE, TypeDescription.Generic.Builder.of(Future.class).build(), TYPE_VARIABLE_V);
+    private static final TypeDescription.Latent GUAVA_FUNCTION_TYPE = describedInterface(
+            GUAVA_FUNCTION,
+            TypeDescription.Generic.Builder.of(java.util.function.Function.class).build(),
+            TypeDescription.Generic.Builder.typeVariable("F").build(),
+            TYPE_VARIABLE_T);
+    private static final TypeDescription.Latent ASYNC_FUNCTION_TYPE =
+            describedInterface(ASYNC_FUNCTION, null, TYPE_VARIABLE_I, TYPE_VARIABLE_O);
+    private static final TypeDescription.Latent FUTURE_CALLBACK_TYPE =
+            describedInterface(FUTURE_CALLBACK, null, TYPE_VARIABLE_V);
+    // The FutureFallback stub provided by this agent is itself an AsyncFunction<Throwable, V>, so FallbackAdapter only
+    // wraps fallbacks whose class declares its own apply method, rather than every fallback on each invocation.
+    private static final TypeDescription.Latent FUTURE_FALLBACK_TYPE = describedInterface(
+            FUTURE_FALLBACK,
+            TypeDescription.Generic.Builder.parameterizedType(
+                            ASYNC_FUNCTION_TYPE,
+                            TypeDescription.Generic.OfNonGenericType.ForLoadedType.of(Throwable.class),
+                            TYPE_VARIABLE_V)
+                    .build(),
+            TYPE_VARIABLE_V);
+    private static final TypeDescription.Latent LISTENING_EXECUTOR_TYPE = describedInterface(
+            LISTENING_EXECUTOR, TypeDescription.Generic.Builder.of(ExecutorService.class).build());
+
+    /**
+     * Collection factories which were public in legacy guava and remain in modern guava with narrower visibility, keyed
+     * by their declaring type. Only factories which return a shared immutable instance belong here, as legacy code
+     * calls them in tight loops.
+     */
+    static final Map<String, List<String>> NARROWED_FACTORIES = Collections.singletonMap(
+            // Iterators.emptyIterator() returns the shared empty ArrayItr
+            ITERATORS, Collections.singletonList("emptyIterator"));
+
+    /**
+     * Constants which legacy guava declared as static final fields of the type which returns them from a factory in
+     * modern guava, keyed by their declaring type and then by field name, with the name of the factory.
+     */
+    static final Map<String, Map<String, String>> CONSTANTS =
+            Collections.singletonMap(CHAR_MATCHER, charMatcherConstants());
+
+    /**
+     * Types provided by this agent which are referenced by the generated shims, and must be loadable alongside
+     * guava.
+     */
+    static final List<String> HELPER_TYPES =
+            Collections.unmodifiableList(Arrays.asList(
+                    FUTURE_FALLBACK,
+                    FALLBACK_ADAPTER,
+                    FALLBACK_ADAPTER + "$DeclaresApply",
+                    TO_STRING_HELPER,
+                    DIRECT_EXECUTOR_SERVICE,
+                    FUSED_TRANSFORMS,
+                    FUSED_TRANSFORMS + "$Dependent",
+                    FUSED_TRANSFORMS + "$Stage",
+                    FUSED_TRANSFORMS + "$Callback",
+                    FUSED_TRANSFORMS + "$Trampoline"));
+
+    /**
+     * Returns the helper types referenced by the shims of the given type, with supertypes before their subtypes so
+     * that they may be defined in order.
+     */
+    static List<String> helperTypes(String shimmedType, boolean fuseTransforms) {
+        switch (shimmedType) {
+            case OBJECTS:
+                return Collections.singletonList(TO_STRING_HELPER);
+            case FUTURES:
+                return fuseTransforms
+                        ? Arrays.asList(
+                                FUTURE_FALLBACK,
+                                FALLBACK_ADAPTER,
+                                FALLBACK_ADAPTER + "$DeclaresApply",
+                                FUSED_TRANSFORMS + "$Dependent",
+                                FUSED_TRANSFORMS,
+                                FUSED_TRANSFORMS + "$Stage",
+                                FUSED_TRANSFORMS + "$Callback",
+                                FUSED_TRANSFORMS + "$Trampoline")
+                        : Arrays.asList(FUTURE_FALLBACK, FALLBACK_ADAPTER, FALLBACK_ADAPTER + "$DeclaresApply");
+            case MORE_EXECUTORS:
+                return Collections.singletonList(DIRECT_EXECUTOR_SERVICE);
+            default:
+                return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Returns the transformers which add shims to guava types, keyed by the name of the type they apply to. The shims
+     * refer to modern guava symbolically, so nothing is loaded or resolved until a shim is first invoked, and each is
+     * linked against the guava of the class loader which defines it. Types without any selected shim are omitted.
+     *
+     * @param recordInvocations whether shims record their invocations in {@link LegacyApiInvocations}
+     * @param fuseTransforms whether direct executor transforms and callbacks are linked by {@link FusedTransforms}
+     * @param selector the shims to apply
+     */
+    static Map<String, AgentBuilder.Transformer> transformers(
+            boolean recordInvocations, boolean fuseTransforms, ShimSelector selector) {
+        Map<String, List<Shim>> shimsByType = new LinkedHashMap<>();
+        for (Map.Entry<LegacyApi, Shim> entry : shims(recordInvocations, fuseTransforms).entrySet()) {
+            if (selector.selects(entry.getKey())) {
+                shimsByType
+                        .computeIfAbsent(entry.getKey().owner().replace('/', '.'), _type -> new ArrayList<>())
+                        .add(entry.getValue());
+            }
+        }
+        for (Map.Entry<String, Map<String, String>> entry : CONSTANTS.entrySet()) {
+            for (Map.Entry<String, String> constant : entry.getValue().entrySet()) {
+                if (selector.selects(entry.getKey(), constant.getKey())) {
+                    shimsByType
+                            .computeIfAbsent(entry.getKey(), _type -> new ArrayList<>())
+                            .add(constant(entry.getKey(), constant.getKey(), constant.getValue()));
+                }
+            }
+        }
+        Map<String, AgentBuilder.Transformer> transformers = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Shim>> entry : shimsByType.entrySet()) {
+            transformers.put(entry.getKey(), defining(entry.getValue()));
+        }
+        for (Map.Entry<String, List<String>> entry : NARROWED_FACTORIES.entrySet()) {
+            List<String> factories = new ArrayList<>();
+            for (String factory : entry.getValue()) {
+                if (selector.selects(entry.getKey(), factory)) {
+                    factories.add(factory);
+                }
+            }
+            if (!factories.isEmpty()) {
+                transformers.put(entry.getKey(), widened(factories));
+            }
+        }
+        return Collections.unmodifiableMap(transformers);
+    }
+
+    /** Adds the method which reconstitutes a legacy api to the type which declared it. */
+    @FunctionalInterface
+    private interface Shim {
+        DynamicType.Builder<?> define(DynamicType.Builder<?> builder);
+    }
+
+    private static AgentBuilder.Transformer defining(List<Shim> shims) {
+        return (builder, _type, _classLoader, _module, _protection) -> {
+            DynamicType.Builder<?> shimmed = builder;
+            for (Shim shim : shims) {
+                shimmed = shim.define(shimmed);
+            }
+            return shimmed;
+        };
+    }
+
+    /**
+     * Restores public visibility of the given no-argument factories. Their invocations are not recorded, as the
+     * factories remain in use by guava itself.
+     */
+    private static AgentBuilder.Transformer widened(List<String> factories) {
+        return (builder, _type, _classLoader, _module, _protection) -> builder.visit(new ModifierAdjustment()
+                .withMethodModifiers(
+                        ElementMatchers.namedOneOf(factories.toArray(new String[0]))
+                                .and(ElementMatchers.isStatic())
+                                .and(ElementMatchers.takesNoArguments()),
+                        Visibility.PUBLIC));
+    }
+
+    /**
+     * Defines a {@code static final} field initialized by the factory when the type is initialized, so that the jit
+     * compiler folds reads of the field into the constant, rather than reading it from the factory on each access.
+     * Reads of fields can't be recorded in {@link LegacyApiInvocations}.
+     */
+    private static Shim constant(String type, String field, String factory) {
+        // Every removed constant is an instance of the type which declared it
+        TypeDescription.Latent declaringType = described(
+                type,
+                Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT,
+                TypeDescription.Generic.OBJECT,
+                Collections.emptyList());
+        MethodDescription.Latent initializer = new MethodDescription.Latent(
+                declaringType,
+                new MethodDescription.Token(
+                        factory, Modifier.PUBLIC | Modifier.STATIC, declaringType.asGenericType()));
+        FieldDescription.Latent constant = new FieldDescription.Latent(
+                declaringType,
+                new FieldDescription.Token(
+                        field, Modifier.PUBLIC | Modifier.STATIC | Modifier.FINAL, declaringType.asGenericType()));
+        return builder -> builder.defineField(
+                        field, declaringType, Modifier.PUBLIC | Modifier.STATIC | Modifier.FINAL)
+                .initializer(new ByteCodeAppender.Simple(
+                        MethodInvocation.invoke(initializer), FieldAccess.forField(constant).write()));
+    }
+
+    /**
+     * Prepends a call to {@link LegacyApiInvocations#record(int)} to the shim if invocations are recorded, otherwise
+     * the shim is generated exactly as it would be without the option.
+     *
+     * <p>Every shim is a single static invocation of at most a few constants and its own parameters, so that even
+     * with the recording call it stays well within the 35 bytes which HotSpot inlines regardless of how hot the call
+     * site is. Shims must not grow beyond that, see {@code ShimInliningTest}.
+     */
+    private static Implementation recorded(boolean recordInvocations, LegacyApi api, Implementation.Composable shim) {
+        if (!recordInvocations) {
+            return shim;
+        }
+        return MethodCall.invoke(RECORD_INVOCATION).with(api.ordinal()).andThen(shim);
+    }
+
+    /**
+     * The shim of every legacy api, each a legacy signature mapped to the modern method it invokes and the arguments
+     * it adds, in the order in which they are defined.
+     */
+    private static Map<LegacyApi, Shim> shims(boolean recordInvocations, boolean fuseTransforms) {
+        Map<LegacyApi, Shim> shims = new EnumMap<>(LegacyApi.class);
+        objects(shims, recordInvocations);
+        futures(shims, recordInvocations, fuseTransforms);
+        moreExecutors(shims, recordInvocations);
+        return shims;
+    }
+
+    private static void objects(Map<LegacyApi, Shim> shims, boolean recordInvocations) {
+        // Objects.firstNonNull(first,second) -> MoreObjects.firstNonNull(first,second)
+        Implementation firstNonNull = recorded(
+                recordInvocations,
+                LegacyApi.OBJECTS_FIRST_NON_NULL,
+                MethodCall.invoke(new MethodDescription.Latent(
+                                MORE_OBJECTS_TYPE,
+                                new MethodDescription.Token(
+                                        "firstNonNull",
+                                        Modifier.PUBLIC | Modifier.STATIC,
+                                        TypeDescription.Generic.OBJECT,
+                                        Arrays.asList(TypeDescription.Generic.OBJECT, TypeDescription.Generic.OBJECT))))
+                        .withAllArguments());
+        shims.put(LegacyApi.OBJECTS_FIRST_NON_NULL, builder -> builder.defineMethod(
+                        "firstNonNull", TYPE_VARIABLE_T, Modifier.PUBLIC | Modifier.STATIC)
+                .withParameter(TYPE_VARIABLE_T, "first")
+                .withParameter(TYPE_VARIABLE_T, "second")
+                .typeVariable(TYPE_VARIABLE_T.getSymbol())
+                .intercept(firstNonNull));
+        // Objects.toStringHelper(Object) -> Objects$ToStringHelper.of(Object)
+        shims.put(
+                LegacyApi.OBJECTS_TO_STRING_HELPER_OBJECT,
+                toStringHelper(recordInvocations, LegacyApi.OBJECTS_TO_STRING_HELPER_OBJECT, Object.class, "self"));
+        // Objects.toStringHelper(Class) -> Objects$ToStringHelper.of(Class)
+        shims.put(
+                LegacyApi.OBJECTS_TO_STRING_HELPER_CLASS,
+                toStringHelper(recordInvocations, LegacyApi.OBJECTS_TO_STRING_HELPER_CLASS, Class.class, "clazz"));
+        // Objects.toStringHelper(String) -> Objects$ToStringHelper.of(String)
+        shims.put(
+                LegacyApi.OBJECTS_TO_STRING_HELPER_STRING,
+                toStringHelper(
+                        recordInvocations, LegacyApi.OBJECTS_TO_STRING_HELPER_STRING, String.class, "className"));
+    }
+
+    /** Delegates to the factory of the {@code Objects$ToStringHelper} stub which accepts the given parameter. */
+    private static Shim toStringHelper(
+            boolean recordInvocations, LegacyApi api, Class<?> parameter, String parameterName) {
+        Implementation factory = recorded(
+                recordInvocations,
+                api,
+                MethodCall.invoke(new MethodDescription.Latent(
+                                TO_STRING_HELPER_TYPE,
+                                new MethodDescription.Token(
+                                        "of",
+                                        Modifier.PUBLIC | Modifier.STATIC,
+                                        TO_STRING_HELPER_TYPE.asGenericType(),
+                                        Collections.singletonList(
+                                                TypeDescription.Generic.OfNonGenericType.ForLoadedType.of(
+                                                        parameter)))))
+                        .withAllArguments());
+        return builder -> builder.defineMethod(
+                        "toStringHelper", TO_STRING_HELPER_TYPE, Modifier.PUBLIC | Modifier.STATIC)
+                .withParameter(parameter, parameterName)
+                .intercept(factory);
+    }
+
+    @SuppressWarnings("checkstyle:MethodLength")
+    private static void futures(Map<LegacyApi, Shim> shims, boolean recordInvocations, boolean fuseTransforms) {
+        MethodCall.WithoutSpecifiedTarget invokeDirectExecutor = MethodCall.invoke(new MethodDescription.Latent(
+                MORE_EXECUTORS_TYPE,
+                new MethodDescription.Token(
+                        "directExecutor",
+                        Modifier.PUBLIC | Modifier.STATIC,
+                        TypeDescription.Generic.OfNonGenericType.ForLoadedType.of(Executor.class))));
+        MethodCall.WithoutSpecifiedTarget invokeCatchingAsync = MethodCall.invoke(ElementMatchers.named(
+                                "catchingAsync")
+                        .and(ElementMatchers.isPublic())
+                        .and(ElementMatchers.isStatic())
+                        .and(ElementMatchers.takesArguments(
+                                LISTENABLE_FUTURE_TYPE,
+                                TypeDescription.ForLoadedType.of(Class.class),
+                                ASYNC_FUNCTION_TYPE,
+                                TypeDescription.ForLoadedType.of(Executor.class))));
+        MethodCall.WithoutSpecifiedTarget invokeTransformAsync = MethodCall.invoke(ElementMatchers.named(
+                                "transformAsync")
+                        .and(ElementMatchers.isPublic())
+                        .and(ElementMatchers.isStatic())
+                        .and(ElementMatchers.takesArguments(
+                                LISTENABLE_FUTURE_TYPE,
+                                ASYNC_FUNCTION_TYPE,
+                                TypeDescription.ForLoadedType.of(Executor.class))));
+        MethodCall transform = MethodCall.invoke(ElementMatchers.named("transform")
+                        .and(ElementMatchers.isPublic())
+                        .and(ElementMatchers.isStatic())
+                        .and(ElementMatchers.takesArguments(
+                                LISTENABLE_FUTURE_TYPE,
+                                GUAVA_FUNCTION_TYPE,
+                                TypeDescription.ForLoadedType.of(Executor.class))))
+                .with(
+                        new MethodCall.ArgumentLoader.ForMethodParameter.Factory(0),
+                        new MethodCall.ArgumentLoader.ForMethodParameter.Factory(1))
+                .withMethodCall(invokeDirectExecutor);
+        MethodCall addCallback = MethodCall.invoke(ElementMatchers.named("addCallback")
+                        .and(ElementMatchers.isPublic())
+                        .and(ElementMatchers.isStatic())
+                        .and(ElementMatchers.takesArguments(
+                                LISTENABLE_FUTURE_TYPE,
+                                FUTURE_CALLBACK_TYPE,
+                                TypeDescription.ForLoadedType.of(Executor.class))))
+                .with(
+                        new MethodCall.ArgumentLoader.ForMethodParameter.Factory(0),
+                        new MethodCall.ArgumentLoader.ForMethodParameter.Factory(1))
+                .withMethodCall(invokeDirectExecutor);
+        if (fuseTransforms) {
+            transform = MethodCall.invoke(new MethodDescription.Latent(
+                            FUSED_TRANSFORMS_TYPE,
+                            new MethodDescription.Token(
+                                    "transform",
+                                    Modifier.PUBLIC | Modifier.STATIC,
+                                    LISTENABLE_FUTURE_TYPE.asGenericType(),
+                                    Arrays.asList(
+                                            LISTENABLE_FUTURE_TYPE.asGenericType(),
+                                            GUAVA_FUNCTION_TYPE.asGenericType()))))
+                    .withAllArguments();
+            addCallback = MethodCall.invoke(new MethodDescription.Latent(
+                            FUSED_TRANSFORMS_TYPE,
+                            new MethodDescription.Token(
+                                    "addCallback",
+                                    Modifier.PUBLIC | Modifier.STATIC,
+                                    TypeDescription.Generic.VOID,
+                                    Arrays.asList(
+                                            LISTENABLE_FUTURE_TYPE.asGenericType(),
+                                            FUTURE_CALLBACK_TYPE.asGenericType()))))
+                    .withAllArguments();
+        }
+        Implementation transformWithFunction =
+                recorded(recordInvocations, LegacyApi.FUTURES_TRANSFORM, transform);
+        Implementation transformWithAsyncFunction = recorded(
+                recordInvocations,
+                LegacyApi.FUTURES_TRANSFORM_ASYNC,
+                invokeTransformAsync
+                        .with(
+                                new MethodCall.ArgumentLoader.ForMethodParameter.Factory(0),
+                                new MethodCall.ArgumentLoader.ForMethodParameter.Factory(1))
+                        .withMethodCall(invokeDirectExecutor));
+        Implementation transformWithAsyncFunctionAndExecutor = recorded(
+                recordInvocations,
+                LegacyApi.FUTURES_TRANSFORM_ASYNC_WITH_EXECUTOR,
+                invokeTransformAsync.withAllArguments());
+        Implementation addCallbackWithoutExecutor =
+                recorded(recordInvocations, LegacyApi.FUTURES_ADD_CALLBACK, addCallback);
+        MethodCall adaptFallback = MethodCall.invoke(new MethodDescription.Latent(
+                        FALLBACK_ADAPTER_TYPE,
+                        new MethodDescription.Token(
+                                "of",
+                                Modifier.PUBLIC | Modifier.STATIC,
+                                ASYNC_FUNCTION_TYPE.asGenericType(),
+                                Collections.singletonList(FUTURE_FALLBACK_TYPE.asGenericType()))))
+                .withArgument(1);
+        Implementation withFallback = recorded(
+                recordInvocations,
+                LegacyApi.FUTURES_WITH_FALLBACK,
+                invokeCatchingAsync
+                        .with(new MethodCall.ArgumentLoader.ForMethodParameter.Factory(0))
+                        .with(TypeDescription.ForLoadedType.of(Throwable.class))
+                        .withMethodCall(adaptFallback)
+                        .withMethodCall(invokeDirectExecutor));
+        Implementation withFallbackAndExecutor = recorded(
+                recordInvocations,
+                LegacyApi.FUTURES_WITH_FALLBACK_WITH_EXECUTOR,
+                invokeCatchingAsync
+                        .with(new MethodCall.ArgumentLoader.ForMethodParameter.Factory(0))
+                        .with(TypeDescription.ForLoadedType.of(Throwable.class))
+                        .withMethodCall(adaptFallback)
+                        .with(new MethodCall.ArgumentLoader.ForMethodParameter.Factory(2)));
+
+        Generic futureOfI = TypeDescription.Generic.Builder.parameterizedType(LISTENABLE_FUTURE_TYPE, TYPE_VARIABLE_I)
+                .build();
+        Generic futureOfO = TypeDescription.Generic.Builder.parameterizedType(LISTENABLE_FUTURE_TYPE, TYPE_VARIABLE_O)
+                .build();
+        Generic futureOfV = TypeDescription.Generic.Builder.parameterizedType(LISTENABLE_FUTURE_TYPE, TYPE_VARIABLE_V)
+                .build();
+        Generic function = TypeDescription.Generic.Builder.parameterizedType(
+                        GUAVA_FUNCTION_TYPE, Arrays.asList(TYPE_VARIABLE_I, TYPE_VARIABLE_O))
+                .build();
+        Generic asyncFunction = TypeDescription.Generic.Builder.parameterizedType(
+                        ASYNC_FUNCTION_TYPE, Arrays.asList(TYPE_VARIABLE_I, TYPE_VARIABLE_O))
+                .build();
+        Generic callback = TypeDescription.Generic.Builder.parameterizedType(FUTURE_CALLBACK_TYPE, TYPE_VARIABLE_V)
+                .build();
+        Generic fallback = TypeDescription.Generic.Builder.parameterizedType(FUTURE_FALLBACK_TYPE, TYPE_VARIABLE_V)
+                .build();
+        // transform(future, function) -> transform(future, function, executor)
+        shims.put(LegacyApi.FUTURES_TRANSFORM, builder -> builder.defineMethod(
+                        "transform", futureOfO, Modifier.PUBLIC | Modifier.STATIC)
+                .withParameter(futureOfI, "input")
+                .withParameter(function, "function")
+                .typeVariable(TYPE_VARIABLE_I.getSymbol())
+                .typeVariable(TYPE_VARIABLE_O.getSymbol())
+                .intercept(transformWithFunction));
+        // transform(future, asyncfun) -> transformAsync(future, asyncfun, executor)
+        shims.put(LegacyApi.FUTURES_TRANSFORM_ASYNC, builder -> builder.defineMethod(
+                        "transform", futureOfO, Modifier.PUBLIC | Modifier.STATIC)
+                .withParameter(futureOfI, "input")
+                .withParameter(asyncFunction, "function")
+                .typeVariable(TYPE_VARIABLE_I.getSymbol())
+                .typeVariable(TYPE_VARIABLE_O.getSymbol())
+                .intercept(transformWithAsyncFunction));
+        // transform(future, asyncfun, executor) -> transformAsync(future, asyncfun, executor)
+        shims.put(LegacyApi.FUTURES_TRANSFORM_ASYNC_WITH_EXECUTOR, builder -> builder.defineMethod(
+                        "transform", futureOfO, Modifier.PUBLIC | Modifier.STATIC)
+                .withParameter(futureOfI, "input")
+                .withParameter(asyncFunction, "function")
+                .withParameter(Executor.class, "executor")
+                .typeVariable(TYPE_VARIABLE_I.getSymbol())
+                .typeVariable(TYPE_VARIABLE_O.getSymbol())
+                .intercept(transformWithAsyncFunctionAndExecutor));
+        // addCallback(future, cb) -> addCallback(future, cb, executor)
+        shims.put(LegacyApi.FUTURES_ADD_CALLBACK, builder -> builder.defineMethod(
+                        "addCallback", TypeDescription.ForLoadedType.of(void.class), Modifier.PUBLIC | Modifier.STATIC)
+                .withParameter(futureOfV, "input")
+                .withParameter(callback, "function")
+                .typeVariable(TYPE_VARIABLE_V.getSymbol())
+                .intercept(addCallbackWithoutExecutor));
+        // withFallback(future, fb) -> catchingAsync(future, Throwable.class, FallbackAdapter.of(fb), executor)
+        shims.put(LegacyApi.FUTURES_WITH_FALLBACK, builder -> builder.defineMethod(
+                        "withFallback", futureOfV, Modifier.PUBLIC | Modifier.STATIC)
+                .withParameter(futureOfV, "input")
+                .withParameter(fallback, "fallback")
+                .typeVariable(TYPE_VARIABLE_V.getSymbol())
+                .intercept(withFallback));
+        // withFallback(future, fb, executor)
+        //     -> catchingAsync(future, Throwable.class, FallbackAdapter.of(fb), executor)
+        shims.put(LegacyApi.FUTURES_WITH_FALLBACK_WITH_EXECUTOR, builder -> builder.defineMethod(
+                        "withFallback", futureOfV, Modifier.PUBLIC | Modifier.STATIC)
+                .withParameter(futureOfV, "input")
+                .withParameter(fallback, "fallback")
+                .withParameter(TypeDescription.Generic.OfNonGenericType.ForLoadedType.of(Executor.class), "executor")
+                .typeVariable(TYPE_VARIABLE_V.getSymbol())
+                .intercept(withFallbackAndExecutor));
+    }
+
+    // MoreExecutors.sameThreadExecutor() -> LockFreeDirectExecutorService.create()
+    private static void moreExecutors(Map<LegacyApi, Shim> shims, boolean recordInvocations) {
+        Implementation sameThreadExecutor = recorded(
+                recordInvocations,
+                LegacyApi.MORE_EXECUTORS_SAME_THREAD_EXECUTOR,
+                MethodCall.invoke(new MethodDescription.Latent(
+                        DIRECT_EXECUTOR_SERVICE_TYPE,
+                        new MethodDescription.Token(
+                                "create",
+                                Modifier.PUBLIC | Modifier.STATIC,
+                                LISTENING_EXECUTOR_TYPE.asGenericType()))));
+        shims.put(LegacyApi.MORE_EXECUTORS_SAME_THREAD_EXECUTOR, builder -> builder.defineMethod(
+                        "sameThreadExecutor", LISTENING_EXECUTOR_TYPE, Modifier.PUBLIC | Modifier.STATIC)
+                .intercept(sameThreadExecutor));
+    }
+
+    /** The constants of legacy {@code CharMatcher}, deprecated in favor of factories in guava 19 and since removed. */
+    private static Map<String, String> charMatcherConstants() {
+        Map<String, String> constants = new LinkedHashMap<>();
+        constants.put("WHITESPACE", "whitespace");
+        constants.put("BREAKING_WHITESPACE", "breakingWhitespace");
+        constants.put("ASCII", "ascii");
+        constants.put("DIGIT", "digit");
+        constants.put("JAVA_DIGIT", "javaDigit");
+        constants.put("JAVA_LETTER", "javaLetter");
+        constants.put("JAVA_LETTER_OR_DIGIT", "javaLetterOrDigit");
+        constants.put("JAVA_UPPER_CASE", "javaUpperCase");
+        constants.put("JAVA_LOWER_CASE", "javaLowerCase");
+        constants.put("JAVA_ISO_CONTROL", "javaIsoControl");
+        constants.put("INVISIBLE", "invisible");
+        constants.put("SINGLE_WIDTH", "singleWidth");
+        constants.put("ANY", "any");
+        constants.put("NONE", "none");
+        return Collections.unmodifiableMap(constants);
+    }
+
+    private static Method recordInvocationMethod() {
+        try {
+            return LegacyApiInvocations.class.getMethod("record", int.class);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("LegacyApiInvocations.record(int) is missing", e);
+        }
+    }
+
+    /**
+     * Describes a type by name alone, so that it is neither loaded nor resolved, and its description can be shared by
+     * every transformation regardless of the class loader.
+     */
+    private static TypeDescription.Latent described(
+            String name, int modifiers, Generic superClass, List<Generic> interfaces, Generic... typeVariables) {
+        return new TypeDescription.Latent(name, modifiers, superClass, interfaces) {
+            @Override
+            public TypeDescription getDeclaringType() {
+                return null;
+            }
+
+            @Override
+            public AnnotationList getDeclaredAnnotations() {
+                return new AnnotationList.Empty();
+            }
+
+            @Override
+            public TypeList.Generic getTypeVariables() {
+                return new TypeList.Generic.Explicit(typeVariables);
+            }
+        };
+    }
+
+    private static TypeDescription.Latent describedClass(String name) {
+        return described(
+                name, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL, TypeDescription.Generic.OBJECT, Collections.emptyList());
+    }
+
+    private static TypeDescription.Latent describedInterface(
+            String name, Generic superInterface, Generic... typeVariables) {
+        return described(
+                name,
+                Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT | Opcodes.ACC_INTERFACE,
+                null,
+                superInterface == null ? Collections.emptyList() : Collections.singletonList(superInterface),
+                typeVariables);
+    }
+
+    private GuavaShims() {}
+}
@@ -0,0 +1,68 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.agent;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.IllegalClassFormatException;
+import java.security.ProtectionDomain;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Defines the helper types referenced by the shims of a guava class in the class loader which defines that class,
+ * just before the shimmed class is defined. Otherwise helpers are loaded once from the agent jar by the system class
+ * loader, where they link against the system class loader's guava, if any, and are never unloaded. Shims in a loader
+ * which defines its own guava then fail to link, or to cast the helpers to that guava's types.
+ *
+ * <p>Helpers can't be hidden classes, as the shims link to them by name and application code implements
+ * {@code FutureFallback}. Defined in the loader of the guava they link against, they are unloaded along with it, and
+ * only the helpers of the shimmed classes which the loader actually loads are defined.
+ */
+final class HelperInjectingClassFileTransformer implements ClassFileTransformer {
+
+    private final ClassFileTransformer delegate;
+    private final Map<String, List<String>> helperTypes;
+    private final HelperInjector injector;
+
+    /** @param helperTypes helpers keyed by the internal name of the shimmed type which references them */
+    HelperInjectingClassFileTransformer(
+            ClassFileTransformer delegate, Map<String, List<String>> helperTypes, HelperInjector injector) {
+        this.delegate = delegate;
+        this.helperTypes = helperTypes;
+        this.injector = injector;
+    }
+
+    @Override
+    public byte[] transform(
+            ClassLoader loader,
+            String className,
+            Class<?> classBeingRedefined,
+            ProtectionDomain protectionDomain,
+            byte[] classfileBuffer)
+            throws IllegalClassFormatException {
+        byte[] transformed =
+                delegate.transform(loader, className, classBeingRedefined, protectionDomain, classfileBuffer);
+        // Only classes which were shimmed, in loaders with modern guava, reference the helpers
+        if (transformed != null && classBeingRedefined == null) {
+            List<String> types = helperTypes.get(className);
+            if (types != null) {
+                injector.inject(loader, protectionDomain, types);
+            }
+        }
+        return transformed;
+    }
+}
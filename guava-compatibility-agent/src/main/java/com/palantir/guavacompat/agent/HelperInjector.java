@@ -0,0 +1,87 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.agent;
+
+import java.io.IOException;
+import java.security.ProtectionDomain;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import net.bytebuddy.dynamic.ClassFileLocator;
+import net.bytebuddy.dynamic.loading.ClassInjector;
+
+/**
+ * Defines helper types from the agent jar in a class loader which defines guava, so that they link against that
+ * guava rather than the guava of the agent's class loader. Types which the loader has already defined are skipped, so
+ * helpers may be injected for each shimmed class and redirected caller which needs them.
+ */
+final class HelperInjector {
+
+    private final ClassLoader agentLoader = HelperInjector.class.getClassLoader();
+    private final ClassFileLocator helpers = ClassFileLocator.ForClassLoader.of(agentLoader);
+    private final Map<String, byte[]> classFiles = new ConcurrentHashMap<>();
+
+    /**
+     * Defines the helpers in the given class loader, which defines guava, unless it is the agent's own loader, whose
+     * guava the helpers in the agent jar already link against.
+     *
+     * @param types helpers with supertypes before their subtypes
+     */
+    void inject(ClassLoader loader, ProtectionDomain protectionDomain, List<String> types) {
+        if (loader == null || loader == agentLoader || types.isEmpty()) {
+            return;
+        }
+        try {
+            // Defined in order, so that supertypes are found in the loader rather than its parents
+            Map<String, byte[]> injected = new LinkedHashMap<>();
+            for (String type : types) {
+                injected.put(type, classFile(type));
+            }
+            ClassInjector injector = ClassInjector.UsingReflection.isAvailable()
+                    ? new ClassInjector.UsingReflection(loader, protectionDomain)
+                    : new ClassInjector.UsingUnsafe(loader, protectionDomain);
+            injector.injectRaw(injected);
+        } catch (IOException | RuntimeException | LinkageError ignored) {
+            // The shims fall back to resolving helpers through the loader's parents, as without injection
+        }
+    }
+
+    /**
+     * Defines the helpers in the class loader which defines the guava visible to the given loader, which may be one of
+     * its parents, for a caller whose legacy call sites were redirected to the helpers.
+     */
+    void injectForCaller(ClassLoader loader, List<String> types) {
+        Class<?> guava;
+        try {
+            // Loaded but not initialized, MoreObjects is never shimmed
+            guava = Class.forName(GuavaShims.MORE_OBJECTS, false, loader);
+        } catch (ClassNotFoundException | LinkageError e) {
+            return;
+        }
+        inject(guava.getClassLoader(), guava.getProtectionDomain(), types);
+    }
+
+    private byte[] classFile(String type) throws IOException {
+        byte[] classFile = classFiles.get(type);
+        if (classFile == null) {
+            classFile = helpers.locate(type).resolve();
+            classFiles.put(type, classFile);
+        }
+        return classFile;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.agent;
+
+import java.util.HashMap;
+import java.util.Map;
+import net.bytebuddy.jar.asm.Type;
+
+/** Legacy guava methods which no longer exist in modern guava, identified by their bytecode signature. */
+enum LegacyApi {
+    OBJECTS_FIRST_NON_NULL(
+            Descriptors.OBJECTS, "firstNonNull", "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;"),
+    OBJECTS_TO_STRING_HELPER_OBJECT(
+            Descriptors.OBJECTS, "toStringHelper", "(Ljava/lang/Object;)" + Descriptors.TO_STRING_HELPER),
+    OBJECTS_TO_STRING_HELPER_CLASS(
+            Descriptors.OBJECTS, "toStringHelper", "(Ljava/lang/Class;)" + Descriptors.TO_STRING_HELPER),
+    OBJECTS_TO_STRING_HELPER_STRING(
+            Descriptors.OBJECTS, "toStringHelper", "(Ljava/lang/String;)" + Descriptors.TO_STRING_HELPER),
+    FUTURES_TRANSFORM(
+            Descriptors.FUTURES,
+            "transform",
+            "(" + Descriptors.LISTENABLE_FUTURE + Descriptors.FUNCTION + ")" + Descriptors.LISTENABLE_FUTURE),
+    FUTURES_TRANSFORM_ASYNC(
+            Descriptors.FUTURES,
+            "transform",
+            "(" + Descriptors.LISTENABLE_FUTURE + Descriptors.ASYNC_FUNCTION + ")" + Descriptors.LISTENABLE_FUTURE),
+    FUTURES_TRANSFORM_ASYNC_WITH_EXECUTOR(
+            Descriptors.FUTURES,
+            "transform",
+            "(" + Descriptors.LISTENABLE_FUTURE + Descriptors.ASYNC_FUNCTION + Descriptors.EXECUTOR + ")"
+                    + Descriptors.LISTENABLE_FUTURE),
+    FUTURES_ADD_CALLBACK(
+            Descriptors.FUTURES,
+            "addCallback",
+            "(" + Descriptors.LISTENABLE_FUTURE + Descriptors.FUTURE_CALLBACK + ")V"),
+    FUTURES_WITH_FALLBACK(
+            Descriptors.FUTURES,
+            "withFallback",
+            "(" + Descriptors.LISTENABLE_FUTURE + Descriptors.FUTURE_FALLBACK + ")" + Descriptors.LISTENABLE_FUTURE),
+    FUTURES_WITH_FALLBACK_WITH_EXECUTOR(
+            Descriptors.FUTURES,
+            "withFallback",
+            "(" + Descriptors.LISTENABLE_FUTURE + Descriptors.FUTURE_FALLBACK + Descriptors.EXECUTOR + ")"
+                    + Descriptors.LISTENABLE_FUTURE),
+    MORE_EXECUTORS_SAME_THREAD_EXECUTOR(
+            Descriptors.MORE_EXECUTORS, "sameThreadExecutor", "()" + Descriptors.LISTENING_EXECUTOR_SERVICE);
+
+    private static final Map<String, LegacyApi> BY_SIGNATURE = new HashMap<>();
+
+    static {
+        for (LegacyApi api : values()) {
+            BY_SIGNATURE.put(api.owner + '.' + api.name + api.descriptor, api);
+        }
+    }
+
+    private final String owner;
+    private final String name;
+    private final String descriptor;
+    private final String signature;
+
+    LegacyApi(String owner, String name, String descriptor) {
+        this.owner = owner;
+        this.name = name;
+        this.descriptor = descriptor;
+        this.signature = signature(owner, name, descriptor);
+    }
+
+    /** Internal name of the class which declared this method. */
+    String owner() {
+        return owner;
+    }
+
+    String methodName() {
+        return name;
+    }
+
+    String descriptor() {
+        return descriptor;
+    }
+
+    /** Returns a readable signature such as {@code Futures.transform(ListenableFuture, Function)}. */
+    String signature() {
+        return signature;
+    }
+
+    /** Returns a readable signature of any method, in the format of {@link #signature()}. */
+    static String signature(String owner, String name, String descriptor) {
+        StringBuilder signature = new StringBuilder(simpleName(owner)).append('.').append(name).append('(');
+        Type[] parameters = Type.getArgumentTypes(descriptor);
+        for (int i = 0; i < parameters.length; i++) {
+            if (i > 0) {
+                signature.append(", ");
+            }
+            // Class names rather than internal names, which are descriptors for primitives and arrays
+            String className = parameters[i].getClassName();
+            signature.append(className.substring(className.lastIndexOf('.') + 1));
+        }
+        return signature.append(')').toString();
+    }
+
+    private static String simpleName(String internalName) {
+        return internalName.substring(internalName.lastIndexOf('/') + 1);
+    }
+
+    /** Returns the legacy api invoked by a static call to the given method, or null if it isn't one. */
+    static LegacyApi find(String owner, String name, String descriptor) {
+        // Avoids building a key for the overwhelming majority of invocations, which aren't on a shimmed class
+        if (!owner.equals(Descriptors.OBJECTS)
+                && !owner.equals(Descriptors.FUTURES)
+                && !owner.equals(Descriptors.MORE_EXECUTORS)) {
+            return null;
+        }
+        return BY_SIGNATURE.get(owner + '.' + name + descriptor);
+    }
+
+    static final class Descriptors {
+        static final String OBJECTS = "com/google/common/base/Objects";
+        static final String MORE_OBJECTS = "com/google/common/base/MoreObjects";
+        static final String FUTURES = "com/google/common/util/concurrent/Futures";
+        static final String MORE_EXECUTORS = "com/google/common/util/concurrent/MoreExecutors";
+        static final String DIRECT_EXECUTOR_SERVICE = "com/palantir/guavacompat/agent/LockFreeDirectExecutorService";
+        static final String FUSED_TRANSFORMS = "com/palantir/guavacompat/agent/FusedTransforms";
+        static final String FALLBACK_ADAPTER = "com/palantir/guavacompat/agent/FallbackAdapter";
+
+        static final String TO_STRING_HELPER_TYPE = "com/google/common/base/Objects$ToStringHelper";
+        static final String TO_STRING_HELPER = "L" + TO_STRING_HELPER_TYPE + ";";
+        static final String LISTENABLE_FUTURE = "Lcom/google/common/util/concurrent/ListenableFuture;";
+        static final String FUNCTION = "Lcom/google/common/base/Function;";
+        static final String ASYNC_FUNCTION = "Lcom/google/common/util/concurrent/AsyncFunction;";
+        static final String FUTURE_CALLBACK = "Lcom/google/common/util/concurrent/FutureCallback;";
+        static final String FUTURE_FALLBACK = "Lcom/google/common/util/concurrent/FutureFallback;";
+        static final String EXECUTOR = "Ljava/util/concurrent/Executor;";
+        static final String LISTENING_EXECUTOR_SERVICE =
+                "Lcom/google/common/util/concurrent/ListeningExecutorService;";
+
+        private Descriptors() {}
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.agent;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counts invocations of legacy apis when the agent is started with the {@code metrics} or {@code sampleRate} options,
+ * in which case shims and redirected call sites invoke {@link #record(int)} before the modern api. Counts are exposed
+ * through the {@value #OBJECT_NAME} MBean, which is registered on the first invocation rather than in premain, so
+ * that the platform MBean server is not initialized before the application configures logging. The MBean also exposes
+ * the callbacks moved by {@link CallbackRerouting}, which registers it when the first callback is rerouted, and the
+ * classes rejected by {@link PrefilteringClassFileTransformer}.
+ */
+public final class LegacyApiInvocations implements LegacyApiInvocationsMXBean {
+
+    static final String OBJECT_NAME = "com.palantir.guavacompat:type=LegacyApiInvocations";
+
+    private static final LegacyApi[] APIS = LegacyApi.values();
+
+    /** Indexed by {@link LegacyApi#ordinal()}. Striped counters avoid contention between cores. */
+    private static final LongAdder[] COUNTS = new LongAdder[APIS.length];
+
+    static {
+        for (int i = 0; i < COUNTS.length; i++) {
+            COUNTS[i] = new LongAdder();
+        }
+        register();
+    }
+
+    private LegacyApiInvocations() {}
+
+    /** Records an invocation of the {@link LegacyApi} with the given ordinal. */
+    public static void record(int api) {
+        COUNTS[api].increment();
+        CallSiteSampler.sample(APIS[api]);
+    }
+
+    @Override
+    public Map<String, Long> getInvocationCounts() {
+        List<LegacyApi> apis = new ArrayList<>(APIS.length);
+        long[] counts = new long[APIS.length];
+        for (LegacyApi api : APIS) {
+            apis.add(api);
+            counts[api.ordinal()] = COUNTS[api.ordinal()].sum();
+        }
+        apis.sort(Comparator.comparingLong((LegacyApi api) -> counts[api.ordinal()]).reversed());
+        Map<String, Long> invocationCounts = new LinkedHashMap<>();
+        for (LegacyApi api : apis) {
+            invocationCounts.put(api.signature(), counts[api.ordinal()]);
+        }
+        return invocationCounts;
+    }
+
+    @Override
+    public Map<String, Long> getSampledCallSites() {
+        return CallSiteSampler.ranked();
+    }
+
+    @Override
+    public Map<String, Long> getReroutedCallbacks() {
+        return CallbackRerouting.counts();
+    }
+
+    @Override
+    public Map<String, Long> getPrefilterStatistics() {
+        return PrefilteringClassFileTransformer.statistics();
+    }
+
+    /** Registers the MBean, if it isn't already, by initializing this class. */
+    static void ensureRegistered() {}
+
+    private static void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                    .registerMBean(new LegacyApiInvocations(), new ObjectName(OBJECT_NAME));
+        } catch (JMException | RuntimeException ignored) {
+            // Counting must not fail the invocation, for example when the agent classes are loaded more than once
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.agent;
+
+import java.util.Map;
+
+/** Management interface of {@link LegacyApiInvocations}. */
+public interface LegacyApiInvocationsMXBean {
+
+    /** Returns the number of invocations of each legacy api, most frequently invoked first. */
+    Map<String, Long> getInvocationCounts();
+
+    /**
+     * Returns the number of sampled invocations from each call site, most frequently sampled first. Empty unless the
+     * agent was started with a {@code sampleRate}.
+     */
+    Map<String, Long> getSampledCallSites();
+
+    /**
+     * Returns the number of callbacks moved from the direct executor to the reroute executor, for each legacy api.
+     * Empty unless the agent was started with the {@code reroute} option.
+     */
+    Map<String, Long> getReroutedCallbacks();
+
+    /**
+     * Returns the number of classes offered to the agent, and the number rejected by their name before ByteBuddy
+     * parsed them. With the {@code metrics} option, also returns the estimated time saved by rejecting them.
+     */
+    Map<String, Long> getPrefilterStatistics();
+}
@@ -0,0 +1,181 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.agent;
+
+import com.google.common.util.concurrent.AbstractListeningExecutorService;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Runs each task on the thread which submits it, with the shutdown and termination behavior of
+ * {@code MoreExecutors.newDirectExecutorService()}, which takes a monitor for every task in order to count running
+ * tasks. Here running tasks are counted without locks: a single counter is used until concurrent tasks contend for
+ * it, after which tasks are counted in padded stripes, like a {@code LongAdder}. Unlike a {@code LongAdder}, each
+ * task decrements the same counter it incremented, so no counter is ever observed below the number of tasks it is
+ * running, and a sum of zero after shutdown reliably means the executor has terminated. A monitor is only used by
+ * threads awaiting termination, and by tasks which complete after shutdown.
+ */
+public final class LockFreeDirectExecutorService extends AbstractListeningExecutorService {
+
+    /** Longs per stripe, which places stripes on separate cache lines. */
+    private static final int PADDING = 16;
+
+    private static final int STRIPES = stripes(Runtime.getRuntime().availableProcessors());
+
+    private static final int BASE_COUNTER = -1;
+
+    private static final AtomicLongFieldUpdater<LockFreeDirectExecutorService> BASE =
+            AtomicLongFieldUpdater.newUpdater(LockFreeDirectExecutorService.class, "base");
+
+    private static final AtomicReferenceFieldUpdater<LockFreeDirectExecutorService, AtomicLongArray> STRIPED =
+            AtomicReferenceFieldUpdater.newUpdater(
+                    LockFreeDirectExecutorService.class, AtomicLongArray.class, "striped");
+
+    private final Object terminationLock = new Object();
+
+    private volatile long base;
+
+    /** Allocated on first contention, as most executors are created per call and used by a single thread. */
+    private volatile AtomicLongArray striped;
+
+    private volatile boolean shutdown;
+
+    private LockFreeDirectExecutorService() {}
+
+    /** Replaces {@code MoreExecutors.sameThreadExecutor()}. */
+    public static ListeningExecutorService create() {
+        return new LockFreeDirectExecutorService();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        // The counter is incremented before shutdown is checked, so a task is either rejected or observed by
+        // isTerminated until it completes.
+        int counter = startTask();
+        try {
+            if (shutdown) {
+                throw new RejectedExecutionException("Executor already shutdown");
+            }
+            command.run();
+        } finally {
+            endTask(counter);
+            if (shutdown) {
+                signalIfTerminated();
+            }
+        }
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        signalIfTerminated();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && running() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        long deadline = System.nanoTime() + nanos;
+        synchronized (terminationLock) {
+            while (!isTerminated()) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(terminationLock, nanos);
+                nanos = deadline - System.nanoTime();
+            }
+            return true;
+        }
+    }
+
+    /** Returns the counter which was incremented, to be decremented when the task completes. */
+    private int startTask() {
+        long current = base;
+        if (striped == null && BASE.compareAndSet(this, current, current + 1)) {
+            return BASE_COUNTER;
+        }
+        int counter = (((int) Thread.currentThread().getId()) & (STRIPES - 1)) * PADDING;
+        stripes().incrementAndGet(counter);
+        return counter;
+    }
+
+    private void endTask(int counter) {
+        if (counter == BASE_COUNTER) {
+            BASE.decrementAndGet(this);
+        } else {
+            striped.decrementAndGet(counter);
+        }
+    }
+
+    private AtomicLongArray stripes() {
+        AtomicLongArray current = striped;
+        if (current == null) {
+            STRIPED.compareAndSet(this, null, new AtomicLongArray(STRIPES * PADDING));
+            current = striped;
+        }
+        return current;
+    }
+
+    private long running() {
+        long running = base;
+        AtomicLongArray current = striped;
+        if (current != null) {
+            for (int i = 0; i < STRIPES; i++) {
+                running += current.get(i * PADDING);
+            }
+        }
+        return running;
+    }
+
+    /** Wakes threads awaiting termination. Checked before locking, so only the termination path takes the monitor. */
+    private void signalIfTerminated() {
+        if (isTerminated()) {
+            synchronized (terminationLock) {
+                terminationLock.notifyAll();
+            }
+        }
+    }
+
+    private static int stripes(int processors) {
+        int stripes = 1;
+        while (stripes < processors && stripes < 64) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+}
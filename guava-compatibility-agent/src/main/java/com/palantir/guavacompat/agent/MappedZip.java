@@ -0,0 +1,145 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.agent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Predicate;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Reads the entries of a zip archive held in a {@link ByteBuffer}, which is either a memory-mapped jar or the contents
+ * of a jar nested in another. Only the central directory and the selected entries are read, and stored entries are
+ * returned as slices of the archive rather than copied. Zip64 archives are not supported.
+ */
+final class MappedZip {
+
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int CENTRAL_DIRECTORY_ENTRY = 0x02014b50;
+    private static final int CENTRAL_DIRECTORY_ENTRY_SIZE = 46;
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+
+    interface EntryConsumer {
+        void accept(String name, ByteBuffer contents) throws IOException;
+    }
+
+    private MappedZip() {}
+
+    /** Passes the name and contents of each file entry accepted by the filter to the consumer, in directory order. */
+    static void read(ByteBuffer archive, Predicate<String> filter, EntryConsumer consumer) throws IOException {
+        ByteBuffer zip = archive.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int end = findEndOfCentralDirectory(zip);
+        int entries = Short.toUnsignedInt(zip.getShort(end + 10));
+        long directoryOffset = Integer.toUnsignedLong(zip.getInt(end + 16));
+        if (entries == 0xFFFF || directoryOffset == 0xFFFFFFFFL) {
+            throw new ZipException("Zip64 archives are not supported");
+        }
+        int position = (int) directoryOffset;
+        for (int i = 0; i < entries; i++) {
+            if (zip.getInt(position) != CENTRAL_DIRECTORY_ENTRY) {
+                throw new ZipException("Invalid central directory entry at " + position);
+            }
+            int method = Short.toUnsignedInt(zip.getShort(position + 10));
+            int compressedSize = zip.getInt(position + 20);
+            int size = zip.getInt(position + 24);
+            int nameLength = Short.toUnsignedInt(zip.getShort(position + 28));
+            int extraLength = Short.toUnsignedInt(zip.getShort(position + 30));
+            int commentLength = Short.toUnsignedInt(zip.getShort(position + 32));
+            int localHeader = zip.getInt(position + 42);
+            String name = string(zip, position + CENTRAL_DIRECTORY_ENTRY_SIZE, nameLength);
+            position += CENTRAL_DIRECTORY_ENTRY_SIZE + nameLength + extraLength + commentLength;
+            if (!name.endsWith("/") && filter.test(name)) {
+                ByteBuffer contents = contents(zip, localHeader, method, compressedSize, size);
+                if (contents != null) {
+                    consumer.accept(name, contents);
+                }
+            }
+        }
+    }
+
+    private static int findEndOfCentralDirectory(ByteBuffer zip) throws ZipException {
+        int last = zip.limit() - END_OF_CENTRAL_DIRECTORY_SIZE;
+        int first = Math.max(0, last - MAX_COMMENT_LENGTH);
+        for (int position = last; position >= first; position--) {
+            if (zip.getInt(position) == END_OF_CENTRAL_DIRECTORY) {
+                return position;
+            }
+        }
+        throw new ZipException("End of central directory not found");
+    }
+
+    /** Returns the contents of an entry, or null if it uses a compression method other than deflate. */
+    private static ByteBuffer contents(ByteBuffer zip, int localHeader, int method, int compressedSize, int size)
+            throws ZipException {
+        if (zip.getInt(localHeader) != LOCAL_HEADER) {
+            throw new ZipException("Invalid local header at " + localHeader);
+        }
+        // The local header may have different extra fields to the central directory
+        int nameLength = Short.toUnsignedInt(zip.getShort(localHeader + 26));
+        int extraLength = Short.toUnsignedInt(zip.getShort(localHeader + 28));
+        ByteBuffer compressed = zip.duplicate();
+        compressed.position(localHeader + LOCAL_HEADER_SIZE + nameLength + extraLength);
+        compressed.limit(compressed.position() + compressedSize);
+        if (method == STORED) {
+            return compressed.slice();
+        }
+        if (method != DEFLATED) {
+            return null;
+        }
+        // Inflating without a zlib header requires an extra dummy byte of input
+        byte[] input = new byte[compressedSize + 1];
+        compressed.get(input, 0, compressedSize);
+        byte[] output = new byte[size];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(input);
+            int inflated = 0;
+            while (inflated < size && !inflater.finished()) {
+                int count = inflater.inflate(output, inflated, size - inflated);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += count;
+            }
+            if (inflated != size) {
+                throw new ZipException("Entry at " + localHeader + " is truncated");
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException("Entry at " + localHeader + " is corrupt: " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+        return ByteBuffer.wrap(output);
+    }
+
+    private static String string(ByteBuffer zip, int position, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = zip.get(position + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
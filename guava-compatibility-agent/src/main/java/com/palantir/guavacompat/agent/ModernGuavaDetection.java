@@ -0,0 +1,64 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.agent;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import net.bytebuddy.matcher.ElementMatcher;
+
+/**
+ * Detects whether modern guava is visible to a class loader by looking up a class file resource, which neither loads
+ * nor initializes any class. Shims are only applied in loaders which can see modern guava, where the legacy methods
+ * have been removed and their replacements exist.
+ */
+final class ModernGuavaDetection {
+
+    private static final String MORE_OBJECTS_RESOURCE = GuavaShims.MORE_OBJECTS.replace('.', '/') + ".class";
+
+    /** Matches class loaders which can see modern guava. */
+    static final ElementMatcher<ClassLoader> MATCHER = new ElementMatcher.Junction.AbstractBase<ClassLoader>() {
+        @Override
+        public boolean matches(ClassLoader loader) {
+            return isPresent(loader);
+        }
+
+        @Override
+        public String toString() {
+            return "hasModernGuava()";
+        }
+    };
+
+    /** Results by class loader, which are discarded along with the class loader. */
+    private static final Map<ClassLoader, Boolean> PRESENT = Collections.synchronizedMap(new WeakHashMap<>());
+
+    static boolean isPresent(ClassLoader loader) {
+        if (loader == null) {
+            // The bootstrap loader is represented by null, system resources are a superset of its resources.
+            return ClassLoader.getSystemResource(MORE_OBJECTS_RESOURCE) != null;
+        }
+        Boolean present = PRESENT.get(loader);
+        if (present == null) {
+            // Looked up outside of the lock, concurrent lookups for the same loader produce the same result
+            present = loader.getResource(MORE_OBJECTS_RESOURCE) != null;
+            PRESENT.put(loader, present);
+        }
+        return present;
+    }
+
+    private ModernGuavaDetection() {}
+}
@@ -0,0 +1,132 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.agent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.ClassFileLocator;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.pool.TypePool;
+
+/**
+ * Applies the shims to a guava jar ahead of time, producing a jar which provides the reconstituted APIs without
+ * {@code -javaagent}. The helper types referenced by the shims are copied into the output jar.
+ *
+ * <p>Usage: {@code java -jar guava-compatibility-agent.jar <guava jar> <output jar>}. This main method is the
+ * supported interface, and is the agent jar's {@code Main-Class}.
+ */
+public final class OfflineRewriter {
+
+    private static final String CLASS_FILE_EXTENSION = ".class";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: OfflineRewriter <guava jar> <output jar>");
+        }
+        rewrite(Paths.get(args[0]), Paths.get(args[1]));
+    }
+
+    static void rewrite(Path input, Path output) throws IOException {
+        try (JarFile jar = new JarFile(input.toFile())) {
+            ClassFileLocator locator = new ClassFileLocator.Compound(
+                    new ClassFileLocator.ForJarFile(jar), ClassFileLocator.ForClassLoader.ofSystemLoader());
+            TypePool typePool = TypePool.Default.of(locator);
+            if (!typePool.describe(GuavaShims.MORE_OBJECTS).isResolved()) {
+                throw new IllegalArgumentException(input + " does not contain a modern guava release, "
+                        + GuavaShims.MORE_OBJECTS + " could not be found");
+            }
+            Map<String, AgentBuilder.Transformer> transformers =
+                    GuavaShims.transformers(false, false, ShimSelector.ALL);
+            Files.createDirectories(output.toAbsolutePath().getParent());
+            try (OutputStream stream = Files.newOutputStream(output);
+                    JarOutputStream out = new JarOutputStream(stream)) {
+                Enumeration<JarEntry> entries = jar.entries();
+                while (entries.hasMoreElements()) {
+                    JarEntry entry = entries.nextElement();
+                    if (isSignature(entry.getName())) {
+                        // Signatures are invalidated by rewriting
+                        continue;
+                    }
+                    JarEntry rewritten = new JarEntry(entry.getName());
+                    rewritten.setTime(entry.getTime());
+                    out.putNextEntry(rewritten);
+                    AgentBuilder.Transformer transformer = transformers.get(typeName(entry.getName()));
+                    if (transformer == null) {
+                        try (InputStream in = jar.getInputStream(entry)) {
+                            copy(in, out);
+                        }
+                    } else {
+                        out.write(transform(typePool, locator, typeName(entry.getName()), transformer));
+                    }
+                    out.closeEntry();
+                }
+                ClassFileLocator helpers = ClassFileLocator.ForClassLoader.of(OfflineRewriter.class.getClassLoader());
+                for (String helper : GuavaShims.HELPER_TYPES) {
+                    out.putNextEntry(new JarEntry(helper.replace('.', '/') + CLASS_FILE_EXTENSION));
+                    out.write(helpers.locate(helper).resolve());
+                    out.closeEntry();
+                }
+            }
+        }
+    }
+
+    private static byte[] transform(
+            TypePool typePool, ClassFileLocator locator, String typeName, AgentBuilder.Transformer transformer) {
+        TypeDescription type = typePool.describe(typeName).resolve();
+        DynamicType.Builder<?> builder =
+                transformer.transform(new ByteBuddy().rebase(type, locator), type, null, null, null);
+        return builder.make(typePool).getBytes();
+    }
+
+    private static String typeName(String entryName) {
+        if (!entryName.endsWith(CLASS_FILE_EXTENSION)) {
+            return entryName;
+        }
+        return entryName
+                .substring(0, entryName.length() - CLASS_FILE_EXTENSION.length())
+                .replace('/', '.');
+    }
+
+    private static boolean isSignature(String entryName) {
+        String name = entryName.toUpperCase(Locale.ROOT);
+        return name.startsWith("META-INF/")
+                && (name.endsWith(".SF") || name.endsWith(".RSA") || name.endsWith(".DSA") || name.endsWith(".EC"));
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+
+    private OfflineRewriter() {}
+}
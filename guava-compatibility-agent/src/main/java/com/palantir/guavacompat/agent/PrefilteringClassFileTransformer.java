@@ -0,0 +1,120 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.agent;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.IllegalClassFormatException;
+import java.security.ProtectionDomain;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rejects classes which the delegate {@link ClassFileTransformer} doesn't transform based on their internal name,
+ * before the delegate does any work. ByteBuddy creates a class file locator, type pool and type description for
+ * every class it is offered, which adds up on large classpaths.
+ *
+ * <p>The number of rejected classes is exposed by {@link LegacyApiInvocations}. When calibrating, a random one in
+ * {@value #CALIBRATION_INTERVAL} named rejected classes is also offered to the ByteBuddy transformer, without the
+ * caching and injection which wrap it, and its result discarded, to estimate the time the prefilter saved.
+ */
+final class PrefilteringClassFileTransformer implements ClassFileTransformer {
+
+    private static final String GUAVA_PACKAGE = "com/google/common/";
+    private static final int CALIBRATION_INTERVAL = 128;
+
+    private static final LongAdder OFFERED = new LongAdder();
+    private static final LongAdder REJECTED = new LongAdder();
+    private static final AtomicLong CALIBRATED = new AtomicLong();
+    private static final AtomicLong CALIBRATION_NANOS = new AtomicLong();
+
+    private final ClassFileTransformer delegate;
+    private final ClassNameFilter transformed;
+    private final ClassFileTransformer calibrated;
+
+    /**
+     * @param transformed the classes which the delegate may transform
+     * @param calibrated the transformer which some rejected classes are offered to, in order to estimate the time
+     *     saved, or null to not calibrate
+     */
+    PrefilteringClassFileTransformer(
+            ClassFileTransformer delegate, ClassNameFilter transformed, ClassFileTransformer calibrated) {
+        this.delegate = delegate;
+        this.transformed = transformed;
+        this.calibrated = calibrated;
+    }
+
+    @Override
+    public byte[] transform(
+            ClassLoader loader,
+            String className,
+            Class<?> classBeingRedefined,
+            ProtectionDomain protectionDomain,
+            byte[] classfileBuffer)
+            throws IllegalClassFormatException {
+        OFFERED.increment();
+        // className is null for hidden and anonymous classes. The package check is cheaper than the filter for the
+        // vast majority of classes, which are outside of guava.
+        if (className == null || !className.startsWith(GUAVA_PACKAGE) || !transformed.contains(className)) {
+            REJECTED.increment();
+            // Sampled without a shared counter, which would be contended by every rejected class. Hidden classes
+            // have no name and are left out.
+            if (calibrated != null
+                    && className != null
+                    && ThreadLocalRandom.current().nextInt(CALIBRATION_INTERVAL) == 0) {
+                calibrate(loader, className, classBeingRedefined, protectionDomain, classfileBuffer);
+            }
+            return null;
+        }
+        return delegate.transform(loader, className, classBeingRedefined, protectionDomain, classfileBuffer);
+    }
+
+    private void calibrate(
+            ClassLoader loader,
+            String className,
+            Class<?> classBeingRedefined,
+            ProtectionDomain protectionDomain,
+            byte[] classfileBuffer) {
+        long start = System.nanoTime();
+        try {
+            // Discarded, the transformer doesn't transform the class in any case
+            calibrated.transform(loader, className, classBeingRedefined, protectionDomain, classfileBuffer);
+        } catch (IllegalClassFormatException | RuntimeException ignored) {
+            // Calibration must not fail class loading
+        }
+        CALIBRATION_NANOS.addAndGet(System.nanoTime() - start);
+        CALIBRATED.incrementAndGet();
+    }
+
+    /** Returns the classes offered to and rejected by the prefilter, and the estimated time it saved. */
+    static Map<String, Long> statistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        long rejected = REJECTED.sum();
+        statistics.put("offeredClasses", OFFERED.sum());
+        statistics.put("rejectedClasses", rejected);
+        long calibrated = CALIBRATED.get();
+        if (calibrated > 0) {
+            // Every rejected class is assumed to cost the delegate as much as the calibrated ones
+            long nanos = CALIBRATION_NANOS.get() * rejected / calibrated;
+            statistics.put("estimatedSavedMillis", TimeUnit.NANOSECONDS.toMillis(nanos));
+        }
+        return statistics;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.agent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Selects the legacy call sites whose callbacks are rerouted from the direct executor to
+ * {@link CallbackRerouting#executor(int)}, by the name of the calling class and the legacy method. Only the overloads
+ * which left the executor implicit are rerouted.
+ *
+ * <p>A package name selects the classes in that package and its subpackages, and a class name selects the class and
+ * its nested classes, so {@code com.example} selects both {@code com.example.Handler} and
+ * {@code com.example.netty.Handler$1}.
+ */
+final class RerouteSelector {
+
+    static final RerouteSelector NONE = new RerouteSelector(Collections.emptyList(), EnumSet.noneOf(LegacyApi.class));
+
+    private static final Set<LegacyApi> REROUTABLE = Collections.unmodifiableSet(EnumSet.of(
+            LegacyApi.FUTURES_TRANSFORM,
+            LegacyApi.FUTURES_TRANSFORM_ASYNC,
+            LegacyApi.FUTURES_ADD_CALLBACK,
+            LegacyApi.FUTURES_WITH_FALLBACK));
+
+    /** Internal names, for example {@code com/example}, which are compared with the internal names of classes. */
+    private final List<String> callers;
+
+    private final Set<LegacyApi> apis;
+
+    private RerouteSelector(List<String> callers, Set<LegacyApi> apis) {
+        this.callers = callers;
+        this.apis = apis;
+    }
+
+    /**
+     * Parses the {@link AgentOptions#REROUTE} and {@link AgentOptions#REROUTE_APIS} options, where apis are named by
+     * their legacy method name, one of {@code transform}, {@code addCallback} or {@code withFallback}.
+     */
+    static RerouteSelector from(AgentOptions options) {
+        List<String> callers = new ArrayList<>();
+        for (String caller : options.getAll(AgentOptions.REROUTE)) {
+            callers.add(caller.replace('.', '/'));
+        }
+        if (callers.isEmpty()) {
+            return NONE;
+        }
+        List<String> names = options.getAll(AgentOptions.REROUTE_APIS);
+        Set<LegacyApi> apis = names.isEmpty() ? EnumSet.copyOf(REROUTABLE) : EnumSet.noneOf(LegacyApi.class);
+        for (String name : names) {
+            int matched = 0;
+            for (LegacyApi api : REROUTABLE) {
+                if (api.methodName().equals(name)) {
+                    apis.add(api);
+                    matched++;
+                }
+            }
+            if (matched == 0) {
+                throw new IllegalArgumentException("guava-compatibility-agent option '" + AgentOptions.REROUTE_APIS
+                        + "' must be one of transform, addCallback or withFallback, was '" + name + "'");
+            }
+        }
+        return new RerouteSelector(Collections.unmodifiableList(callers), Collections.unmodifiableSet(apis));
+    }
+
+    boolean isEmpty() {
+        return callers.isEmpty();
+    }
+
+    /** Returns whether callbacks registered by the class with the given internal name may be rerouted. */
+    boolean selects(String internalName) {
+        for (String caller : callers) {
+            if (internalName.startsWith(caller)
+                    && (internalName.length() == caller.length()
+                            || internalName.charAt(caller.length()) == '/'
+                            || internalName.charAt(caller.length()) == '$')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean selects(LegacyApi api) {
+        return apis.contains(api);
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.agent;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import net.bytebuddy.jar.asm.Type;
+
+/**
+ * Loads, initializes and links the shimmed guava classes of the system class loader on a low priority daemon thread,
+ * and invokes each shim until it is compiled, so that the first request to reach a legacy api after startup doesn't
+ * pay for transforming and interpreting it. Warming runs alongside the application's own startup, and any failure
+ * merely ends it early.
+ *
+ * <p>Invocations are only recorded by the {@code metrics} and {@code sampleRate} options, which count the
+ * application's own calls, so with either option the shims are loaded and linked but not invoked.
+ */
+final class ShimPrewarming {
+
+    /** Beyond the invocation thresholds of both the C1 and C2 compilers. */
+    private static final int ITERATIONS = 20_000;
+
+    private static final String FUTURES = "com.google.common.util.concurrent.Futures";
+    private static final String MORE_EXECUTORS = "com.google.common.util.concurrent.MoreExecutors";
+    private static final String LISTENABLE_FUTURE = "com.google.common.util.concurrent.ListenableFuture";
+    private static final String FUTURE_FALLBACK = "com.google.common.util.concurrent.FutureFallback";
+
+    private ShimPrewarming() {}
+
+    /** Starts warming the shims of the system class loader, if it can see modern guava. */
+    static void start(boolean invokeShims, ShimSelector shims) {
+        ClassLoader loader = ClassLoader.getSystemClassLoader();
+        if (!ModernGuavaDetection.isPresent(loader)) {
+            return;
+        }
+        Thread thread = new Thread(() -> prewarm(loader, invokeShims, shims), "guava-compatibility-agent-prewarm");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    @SuppressWarnings("BanSystemErr")
+    private static void prewarm(ClassLoader loader, boolean invokeShims, ShimSelector shims) {
+        LegacyApi current = null;
+        try {
+            Arguments arguments = new Arguments(loader);
+            for (Map.Entry<String, Map<String, String>> entry : GuavaShims.CONSTANTS.entrySet()) {
+                for (String field : entry.getValue().keySet()) {
+                    if (shims.selects(entry.getKey(), field)) {
+                        // Initializes the constants, reads of which need no warming
+                        Class.forName(entry.getKey(), true, loader);
+                        break;
+                    }
+                }
+            }
+            for (LegacyApi api : LegacyApi.values()) {
+                if (!shims.selects(api)) {
+                    continue;
+                }
+                current = api;
+                Method shim = shim(loader, api);
+                if (!invokeShims) {
+                    continue;
+                }
+                Object[] args = arguments.of(shim.getParameterTypes());
+                for (int i = 0; i < ITERATIONS; i++) {
+                    shim.invoke(null, args);
+                }
+            }
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            // Not fatal, the shims are transformed and compiled on first use instead
+            System.err.println("guava-compatibility-agent stopped prewarming at "
+                    + (current == null ? "startup" : current.signature()) + ": " + e);
+        }
+    }
+
+    /** Loads and initializes the shimmed class, which applies the shims, and links the shim. */
+    private static Method shim(ClassLoader loader, LegacyApi api) throws ReflectiveOperationException {
+        Class<?> owner = Class.forName(api.owner().replace('/', '.'), true, loader);
+        Type[] parameterTypes = Type.getArgumentTypes(api.descriptor());
+        Class<?>[] parameters = new Class<?>[parameterTypes.length];
+        for (int i = 0; i < parameters.length; i++) {
+            parameters[i] = Class.forName(parameterTypes[i].getClassName(), false, loader);
+        }
+        return owner.getMethod(api.methodName(), parameters);
+    }
+
+    /** Arguments with which every shim completes normally, and runs any function, callback or fallback it's given. */
+    private static final class Arguments implements InvocationHandler {
+
+        private final ClassLoader loader;
+        private final Class<?> listenableFuture;
+        private final Class<?> futureFallback;
+        private final Method immediateFuture;
+        private final Object succeeded;
+        private final Object failed;
+        private final Object directExecutor;
+
+        Arguments(ClassLoader loader) throws ReflectiveOperationException {
+            this.loader = loader;
+            this.listenableFuture = Class.forName(LISTENABLE_FUTURE, false, loader);
+            this.futureFallback = Class.forName(FUTURE_FALLBACK, false, loader);
+            Class<?> futures = Class.forName(FUTURES, true, loader);
+            this.immediateFuture = futures.getMethod("immediateFuture", Object.class);
+            this.succeeded = immediateFuture.invoke(null, "prewarm");
+            this.failed = futures.getMethod("immediateFailedFuture", Throwable.class)
+                    .invoke(null, new IllegalStateException("prewarm"));
+            this.directExecutor = Class.forName(MORE_EXECUTORS, true, loader)
+                    .getMethod("directExecutor")
+                    .invoke(null);
+        }
+
+        Object[] of(Class<?>[] parameters) {
+            boolean fallback = false;
+            for (Class<?> parameter : parameters) {
+                fallback |= parameter == futureFallback;
+            }
+            Object[] args = new Object[parameters.length];
+            for (int i = 0; i < parameters.length; i++) {
+                Class<?> parameter = parameters[i];
+                if (parameter == listenableFuture) {
+                    // Fails the input of fallbacks, which are otherwise never run. Proxies declare apply, so the
+                    // fallback runs through the FallbackAdapter which wraps such classes.
+                    args[i] = fallback ? failed : succeeded;
+                } else if (parameter == Class.class) {
+                    args[i] = ShimPrewarming.class;
+                } else if (parameter == Executor.class) {
+                    args[i] = directExecutor;
+                } else if (parameter.isInterface()) {
+                    args[i] = Proxy.newProxyInstance(loader, new Class<?>[] {parameter}, this);
+                } else {
+                    args[i] = "prewarm";
+                }
+            }
+            return args;
+        }
+
+        /** Implements functions, callbacks and fallbacks, returning their input or an immediate future of it. */
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "prewarm";
+                default:
+                    Object input = args == null || args.length == 0 ? null : args[0];
+                    if (method.getReturnType() == void.class) {
+                        return null;
+                    }
+                    if (method.getReturnType() != listenableFuture) {
+                        return input;
+                    }
+                    try {
+                        return immediateFuture.invoke(null, input);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.guavacompat.agent;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Selects the shims which the agent applies, by the simple name of the legacy type and method or constant, for
+ * example {@code Futures.withFallback}, which selects every overload, or {@code CharMatcher.WHITESPACE}. All shims
+ * are applied unless the {@link AgentOptions#SHIMS} option lists the ones to apply, and those listed by
+ * {@link AgentOptions#DISABLE_SHIMS} are never applied. Call-site redirection rewrites calls to the modern apis
+ * rather than to the shims, and is not affected.
+ */
+final class ShimSelector {
+
+    static final ShimSelector ALL = new ShimSelector(null, Collections.emptySet());
+
+    /** Null if every shim is enabled. */
+    private final Set<String> enabled;
+
+    private final Set<String> disabled;
+
+    private ShimSelector(Set<String> enabled, Set<String> disabled) {
+        this.enabled = enabled;
+        this.disabled = disabled;
+    }
+
+    static ShimSelector from(AgentOptions options) {
+        List<String> enabled = options.getAll(AgentOptions.SHIMS);
+        List<String> disabled = options.getAll(AgentOptions.DISABLE_SHIMS);
+        if (enabled.isEmpty() && disabled.isEmpty()) {
+            return ALL;
+        }
+        Set<String> names = names();
+        validate(AgentOptions.SHIMS, enabled, names);
+        validate(AgentOptions.DISABLE_SHIMS, disabled, names);
+        return new ShimSelector(
+                enabled.isEmpty() ? null : Collections.unmodifiableSet(new HashSet<>(enabled)),
+                Collections.unmodifiableSet(new HashSet<>(disabled)));
+    }
+
+    boolean selects(LegacyApi api) {
+        return selects(name(api.owner(), api.methodName()));
+    }
+
+    /**
+     * Returns whether the shim of the given method or constant, of the type with the given class or internal name, is
+     * applied.
+     */
+    boolean selects(String type, String member) {
+        return selects(name(type, member));
+    }
+
+    private boolean selects(String name) {
+        return (enabled == null || enabled.contains(name)) && !disabled.contains(name);
+    }
+
+    private static void validate(String option, List<String> values, Set<String> names) {
+        for (String value : values) {
+            if (!names.contains(value)) {
+                throw new IllegalArgumentException("guava-compatibility-agent option '" + option
+                        + "' must be one of " + String.join(", ", names) + ", was '" + value + "'");
+            }
+        }
+    }
+
+    /** The names of every shim, sorted. */
+    private static Set<String> names() {
+        Set<String> names = new TreeSet<>();
+        for (LegacyApi api : LegacyApi.values()) {
+            names.add(name(api.owner(), api.methodName()));
+        }
+        for (Map.Entry<String, Map<String, String>> entry : GuavaShims.CONSTANTS.entrySet()) {
+            for (String field : entry.getValue().keySet()) {
+                names.add(name(entry.getKey(), field));
+            }
+        }
+        for (Map.Entry<String, List<String>> entry : GuavaShims.NARROWED_FACTORIES.entrySet()) {
+            for (String factory : entry.getValue()) {
+                names.add(name(entry.getKey(), factory));
+            }
+        }
+        return names;
+    }
+
+    private static String name(String type, String member) {
+        return type.substring(Math.max(type.lastIndexOf('/'), type.lastIndexOf('.')) + 1) + '.' + member;
+    }
+}